@@ -0,0 +1,26 @@
+package com.dslab.voronoi;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks with the GC/allocation profiler on and results written to
+ * jmh-result.json, so runs on different commits can be compared. Takes the
+ * usual JMH command line, e.g. "Geometry -p seed=3" to run a subset.
+ */
+public class BenchmarkRunner {
+   public static void main(String[] args) throws Exception {
+      Options options = new OptionsBuilder()
+            .parent(new CommandLineOptions(args))
+            .addProfiler(GCProfiler.class)
+            .shouldFailOnError(true)
+            .result("jmh-result.json")
+            .resultFormat(ResultFormatType.JSON)
+            .build();
+      new Runner(options).run();
+   }
+}
@@ -0,0 +1,54 @@
+package com.dslab.voronoi;
+
+import java.util.Vector;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * End to end builds on Driver's workload (one random site per column). A
+ * build fills in the points' edges, so every iteration gets fresh points from
+ * the same seed.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class BuildBenchmark {
+
+   @Param({ "1000", "10000", "100000", "1000000" })
+   int sites;
+
+   @Param({ "10" })
+   long seed;
+
+   Vector<Point> points;
+
+   @Setup(Level.Iteration)
+   public void generate() {
+      points = new ColumnPointSource(sites, sites, seed).toVector();
+   }
+
+   @Benchmark
+   public VoronoiDiagram sequential() {
+      return new VoronoiDiagram(50000, 50000, points);
+   }
+
+   @Benchmark
+   public VoronoiDiagram parallel() {
+      return new VoronoiDiagram(50000, 50000, points, Runtime.getRuntime().availableProcessors());
+   }
+}
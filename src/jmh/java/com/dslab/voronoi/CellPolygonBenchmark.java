@@ -0,0 +1,64 @@
+package com.dslab.voronoi;
+
+import java.util.Vector;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Clipping every cell of a finished diagram to the sites' square, gathering
+ * the cells' statistics without the polygons and exporting their weighted
+ * adjacency graph, next to building that diagram (EngineBenchmark.fortune) on
+ * the same sites.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CellPolygonBenchmark {
+
+   @Param({ "100000", "1000000" })
+   int sites;
+
+   @Param({ "1", "4" })
+   int threads;
+
+   @Param({ "10" })
+   long seed;
+
+   Vector<Point> points;
+
+   @Setup(Level.Trial)
+   public void build() {
+      points = new UniformPointSource(sites, sites, sites, seed).toVector();
+      new FortuneDiagram(50000, 50000, points);
+   }
+
+   @Benchmark
+   public CellPolygons extract() {
+      return CellPolygons.build(points, 0, 0, sites, sites, threads);
+   }
+
+   @Benchmark
+   public CellStatistics statistics() {
+      return CellStatistics.collect(points, 0, 0, sites, sites, threads);
+   }
+
+   @Benchmark
+   public CellAdjacency adjacency() {
+      return CellAdjacency.build(points, true, threads);
+   }
+}
@@ -0,0 +1,106 @@
+package com.dslab.voronoi;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.Vector;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Divide and conquer against the Fortune sweep on the same sites, for picking
+ * an engine per workload. Sites are spread over a sites x sites grid:
+ * "column" is Driver's workload, "uniform" is uniform in the grid and
+ * "clustered" puts them in 20 gaussian clusters. Every iteration gets fresh
+ * points from the same seed since a build fills in their edges.
+ *
+ * Divide and conquer needs distinct x (see VoronoiDiagram), which only
+ * "column" gives. Its diagrams are checked against a sweep of the same sites
+ * after each iteration, and an iteration whose diagram lost a neighbor fails
+ * instead of reporting a time.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class EngineBenchmark {
+
+   @Param({ "1000", "10000", "100000", "1000000" })
+   int sites;
+
+   @Param({ "column", "uniform", "clustered" })
+   String distribution;
+
+   @Param({ "divide", "sweep" })
+   String engine;
+
+   @Param({ "10" })
+   long seed;
+
+   Vector<Point> points;
+   Diagram diagram;
+
+   @Setup(Level.Iteration)
+   public void generate() {
+      switch (distribution) {
+      case "uniform":
+         points = new UniformPointSource(sites, sites, sites, seed).toVector();
+         break;
+      case "clustered":
+         points = new ClusteredPointSource(sites, sites, sites, 20, Math.sqrt(sites), seed).toVector();
+         break;
+      default:
+         points = new ColumnPointSource(sites, sites, seed).toVector();
+      }
+   }
+
+   @Benchmark
+   public Diagram build() {
+      if (engine.equals("divide")) {
+         diagram = new VoronoiDiagram(50000, 50000, points);
+      } else {
+         diagram = new FortuneDiagram(50000, 50000, points);
+      }
+      return diagram;
+   }
+
+   @TearDown(Level.Iteration)
+   public void check() {
+      if (!engine.equals("divide")) {
+         return;
+      }
+      Vector<Point> copies = new Vector<>(points.size());
+      for (Point p : points) {
+         copies.add(new Point(p.getX(), p.getY()));
+      }
+      Set<Long> found = pairs(diagram.getDelaunay());
+      for (long pair : pairs(new FortuneDiagram(50000, 50000, copies).getDelaunay())) {
+         if (!found.contains(pair)) {
+            throw new IllegalStateException("divide and conquer lost neighbors on " + distribution + " sites");
+         }
+      }
+   }
+
+   // every edge as its two site ids, the lower one first
+   private static Set<Long> pairs(DelaunayMesh mesh) {
+      Set<Long> res = new HashSet<>();
+      for (int e = 0; e < mesh.edgeCount(); e++) {
+         res.add(((long) mesh.edgeFrom(e) << 32) | mesh.edgeTo(e));
+      }
+      return res;
+   }
+}
@@ -0,0 +1,102 @@
+package com.dslab.voronoi;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.Vector;
+import java.util.concurrent.TimeUnit;
+
+import org.locationtech.jts.geom.Coordinate;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The geometry kernels the stitch runs on every step, fed with inputs taken
+ * from a real 10k site diagram. Each call moves on to the next of CASES
+ * prepared inputs so the branch predictor can't learn a single case.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GeometryBenchmark {
+   static final int CASES = 1024;
+
+   @Param({ "10" })
+   long seed;
+
+   Point[] left = new Point[CASES];
+   Point[] right = new Point[CASES];
+   Line[] lines = new Line[CASES];
+   Line[] bisectors = new Line[CASES];
+   Coordinate[] probes = new Coordinate[CASES];
+   IntersectionResult res = new IntersectionResult();
+   int i = 0;
+
+   @Setup
+   public void setup() {
+      Vector<Point> points = new ColumnPointSource(10000, 10000, seed).toVector();
+      new VoronoiDiagram(50000, 50000, points);
+
+      List<Line> all = new ArrayList<>();
+      for (Point p : points) {
+         for (Line l : p.getLines()) {
+            if (l.getP0() == p) {
+               all.add(l);
+            }
+         }
+      }
+      Random rand = new Random(seed);
+      for (int c = 0; c < CASES; c++) {
+         // a site and the neighbor of one of its neighbors, like the pairs the stitch
+         // bisects
+         Line l = all.get(rand.nextInt(all.size()));
+         Point p = l.getP0();
+         Point q = l.getP1();
+         Line next = q.getLines().get(rand.nextInt(q.getLines().size()));
+         Point r = (next.getP0() == q) ? next.getP1() : next.getP0();
+         if (r == p) {
+            r = q;
+         }
+         left[c] = (p.getX() <= r.getX()) ? p : r;
+         right[c] = (left[c] == p) ? r : p;
+         lines[c] = l;
+         bisectors[c] = VoronoiDiagram.bisectorLine(50000, 50000, left[c], right[c]);
+         probes[c] = points.get(rand.nextInt(points.size())).getCoordinate();
+      }
+   }
+
+   private int next() {
+      i = (i + 1) & (CASES - 1);
+      return i;
+   }
+
+   @Benchmark
+   public Line bisectorLine() {
+      int c = next();
+      return VoronoiDiagram.bisectorLine(50000, 50000, left[c], right[c]);
+   }
+
+   @Benchmark
+   public boolean intersects() {
+      int c = next();
+      return lines[c].intersects(bisectors[c], res, null);
+   }
+
+   @Benchmark
+   public double getDirOfCoord() {
+      int c = next();
+      return lines[c].getDirOfCoord(probes[c]);
+   }
+}
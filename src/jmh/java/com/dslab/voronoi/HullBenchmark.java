@@ -0,0 +1,68 @@
+package com.dslab.voronoi;
+
+import java.util.Vector;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * ConvexHull.getBridge between the hulls of the left and right half of a set
+ * of sites, starting from the same points merge starts from.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HullBenchmark {
+
+   @Param({ "1000", "100000" })
+   int sites;
+
+   @Param({ "10" })
+   long seed;
+
+   ConvexHull left;
+   ConvexHull right;
+   int ia;
+   int ib;
+
+   @Setup
+   public void setup() {
+      Vector<Point> points = new ColumnPointSource(sites, sites, seed).toVector();
+      left = hull(points, 0, sites / 2);
+      right = hull(points, sites / 2, sites);
+      ia = left.getPoints().indexOf(left.getRightMostPoint());
+      ib = right.getPoints().indexOf(right.getLeftMostPoint());
+   }
+
+   // grow a hull one site at a time from the left
+   private static ConvexHull hull(Vector<Point> points, int from, int to) {
+      ConvexHull hull = new ConvexHull(points.get(from));
+      for (int i = from + 1; i < to; i++) {
+         hull.merge(new ConvexHull(points.get(i)));
+      }
+      return hull;
+   }
+
+   @Benchmark
+   public Vector<Integer> upperBridge() {
+      return left.getBridge(left, right, ia, ib);
+   }
+
+   @Benchmark
+   public Vector<Integer> lowerBridge() {
+      return left.getBridge(right, left, ib, ia);
+   }
+}
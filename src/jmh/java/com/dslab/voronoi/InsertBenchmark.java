@@ -0,0 +1,62 @@
+package com.dslab.voronoi;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Adding a batch of uniform sites to a finished diagram of uniform sites. The
+ * diagram is built once per iteration and grows by a batch every invocation,
+ * which is small next to it. Compare with EngineBenchmark's fortune time for
+ * what a rebuild would cost.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class InsertBenchmark {
+
+   @Param({ "100000", "1000000" })
+   int sites;
+
+   @Param({ "1", "300" })
+   int batch;
+
+   @Param({ "10" })
+   long seed;
+
+   FortuneDiagram diagram;
+   Random rand;
+
+   @Setup(Level.Iteration)
+   public void build() {
+      diagram = new FortuneDiagram(50000, 50000, new UniformPointSource(sites, sites, sites, seed).toVector());
+      // not the source's seed, that would hand out its sites again
+      rand = new Random(seed + 1);
+   }
+
+   @Benchmark
+   public int insertAll() {
+      List<Point> sites = new ArrayList<>(batch);
+      for (int i = 0; i < batch; i++) {
+         sites.add(new Point(rand.nextInt(this.sites), rand.nextInt(this.sites)));
+      }
+      return diagram.insertAll(sites);
+   }
+}
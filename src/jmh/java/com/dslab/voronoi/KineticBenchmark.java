@@ -0,0 +1,89 @@
+package com.dslab.voronoi;
+
+import java.util.Random;
+import java.util.Vector;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * One animation frame: moving percent of the sites take a random step of up to
+ * step grid units in x and y, then the diagram is either repaired in place
+ * (moveSites) or swept again from scratch. Sites are uniform over a sites x
+ * sites grid. A repair costs what changes around the moved sites, so frames
+ * where few sites move and few edges flip are where it beats the sweep.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class KineticBenchmark {
+
+   @Param({ "10000", "100000" })
+   int sites;
+
+   @Param({ "1", "4" })
+   int step;
+
+   @Param({ "1", "100" })
+   int moving;
+
+   @Param({ "10" })
+   long seed;
+
+   Vector<Point> points;
+   FortuneDiagram diagram;
+   Random rand;
+   double[] x;
+   double[] y;
+
+   @Setup(Level.Trial)
+   public void build() {
+      points = new UniformPointSource(sites, sites, sites, seed).toVector();
+      diagram = new FortuneDiagram(50000, 50000, points);
+      rand = new Random(seed + 1);
+      x = new double[sites];
+      y = new double[sites];
+   }
+
+   // the next frame's positions, kept inside the grid
+   @Setup(Level.Invocation)
+   public void step() {
+      for (int i = 0; i < sites; i++) {
+         Point p = points.get(i);
+         x[i] = p.getX();
+         y[i] = p.getY();
+         if (rand.nextInt(100) < moving) {
+            x[i] = Math.max(0, Math.min(sites - 1, x[i] + rand.nextInt(2 * step + 1) - step));
+            y[i] = Math.max(0, Math.min(sites - 1, y[i] + rand.nextInt(2 * step + 1) - step));
+         }
+      }
+   }
+
+   @Benchmark
+   public boolean moveSites() {
+      return diagram.moveSites(x, y);
+   }
+
+   @Benchmark
+   public FortuneDiagram sweep() {
+      Vector<Point> moved = new Vector<>();
+      for (int i = 0; i < sites; i++) {
+         moved.add(new Point(x[i], y[i]));
+      }
+      return new FortuneDiagram(50000, 50000, moved);
+   }
+}
@@ -0,0 +1,52 @@
+package com.dslab.voronoi;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Ten Lloyd iterations on clustered sites, from fresh sites every time. The
+ * first iterations move sites far and sweep again, the later ones are
+ * repaired in place.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class LloydBenchmark {
+
+   @Param({ "10000", "100000" })
+   int sites;
+
+   @Param({ "1", "4" })
+   int threads;
+
+   @Param({ "10" })
+   long seed;
+
+   LloydRelaxation relaxation;
+
+   @Setup(Level.Iteration)
+   public void generate() {
+      relaxation = new LloydRelaxation(sites, sites,
+            new ClusteredPointSource(sites, sites, sites, 20, Math.sqrt(sites), seed).toVector());
+   }
+
+   @Benchmark
+   public int tenIterations() {
+      return relaxation.run(10, 0, threads);
+   }
+}
@@ -0,0 +1,88 @@
+package com.dslab.voronoi;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The exact predicates against the epsilon orientation test they replaced, on
+ * random sites and on nearly collinear ones (where the filter can't decide and
+ * the exact fallback runs).
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PredicateBenchmark {
+   static final int CASES = 1024;
+
+   @Param({ "random", "collinear" })
+   String input;
+
+   Point[] a = new Point[CASES];
+   Point[] b = new Point[CASES];
+   Point[] c = new Point[CASES];
+   Point[] d = new Point[CASES];
+   int i = 0;
+
+   @Setup
+   public void setup() {
+      Random rand = new Random(10);
+      for (int k = 0; k < CASES; k++) {
+         a[k] = new Point(rand.nextInt(1000000), rand.nextInt(1000000));
+         b[k] = new Point(rand.nextInt(1000000), rand.nextInt(1000000));
+         if (input.equals("collinear")) {
+            // on the line a - b, or one unit off it
+            int t = rand.nextInt(1000);
+            double x = a[k].getX() + (b[k].getX() - a[k].getX()) * t / 1000;
+            double y = a[k].getY() + (b[k].getY() - a[k].getY()) * t / 1000;
+            c[k] = new Point(x, y + rand.nextInt(3) - 1);
+         } else {
+            c[k] = new Point(rand.nextInt(1000000), rand.nextInt(1000000));
+         }
+         d[k] = new Point(rand.nextInt(1000000), rand.nextInt(1000000));
+      }
+   }
+
+   private int next() {
+      i = (i + 1) & (CASES - 1);
+      return i;
+   }
+
+   // what ConvexHull.orientation used to be
+   @Benchmark
+   public int orientEpsilon() {
+      int k = next();
+      Point p = a[k], q = b[k], r = c[k];
+      double res = (q.getY() - p.getY()) * (r.getX() - q.getX()) - (r.getY() - q.getY()) * (q.getX() - p.getX());
+      if (-0.000001 < res && res < 0.000001) {
+         return 0;
+      }
+      return (res > 0) ? 1 : -1;
+   }
+
+   @Benchmark
+   public int orientExact() {
+      int k = next();
+      return Predicates.orient(a[k], b[k], c[k]);
+   }
+
+   @Benchmark
+   public int inCircle() {
+      int k = next();
+      return Predicates.inCircle(a[k], b[k], c[k], d[k]);
+   }
+}
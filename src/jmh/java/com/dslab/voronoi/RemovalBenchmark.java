@@ -0,0 +1,85 @@
+package com.dslab.voronoi;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Vector;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * checkForRemoval over the final stitch of a diagram: the chain of edges
+ * between the left and right half. The candidates are the edges of the left
+ * half's sites, checked for being right of the chain. Any that are get removed
+ * once during setup, so the measured calls don't change the diagram and the
+ * same candidates can be checked every call.
+ * Filling the priority queue is part of the measured work, as it is in stitch.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RemovalBenchmark {
+   // VoronoiDiagram's direction for removing lines right of the chain
+   static final int RIGHT = 2;
+
+   @Param({ "1000", "100000" })
+   int sites;
+
+   @Param({ "10" })
+   long seed;
+
+   Vector<Line> chain = new Vector<>();
+   List<Line> candidates = new ArrayList<>();
+   PriorityQueue<Line> removed = new PriorityQueue<>(Comparator.comparingDouble(Line::getUpperY));
+   IdSet seen = new IdSet();
+
+   @Setup
+   public void setup() {
+      Vector<Point> points = new ColumnPointSource(sites, sites, seed).toVector();
+      new VoronoiDiagram(50000, 50000, points);
+      int mid = sites / 2;
+      for (int s = 0; s < mid; s++) {
+         Point p = points.get(s);
+         for (Line l : p.getLines()) {
+            Point other = (l.getP0() == p) ? l.getP1() : l.getP0();
+            boolean crosses = other.getId() >= mid;
+            if (crosses && l.getP0() == p) {
+               chain.add(l);
+            } else if (!crosses && l.getP0() == p) {
+               candidates.add(l);
+            }
+         }
+      }
+      // the stitch hands checkForRemoval its chain from bottom to top
+      chain.sort(Comparator.comparingDouble(Line::getUpperY));
+
+      removed.addAll(candidates);
+      VoronoiDiagram.checkForRemoval(chain, removed, RIGHT, seen);
+      candidates.removeIf(l -> seen.contains(l.getId()));
+      seen.clear();
+   }
+
+   @Benchmark
+   public int checkForRemoval() {
+      removed.addAll(candidates);
+      VoronoiDiagram.checkForRemoval(chain, removed, RIGHT, seen);
+      int n = seen.size();
+      seen.clear();
+      return n;
+   }
+}
@@ -0,0 +1,53 @@
+package com.dslab.voronoi;
+
+import java.util.Vector;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Kruskal over the neighbor pairs of a finished diagram for the sites'
+ * Euclidean minimum spanning tree, next to building that diagram
+ * (EngineBenchmark.fortune) on the same sites.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SpanningTreeBenchmark {
+
+   @Param({ "100000", "1000000" })
+   int sites;
+
+   @Param({ "1", "4" })
+   int threads;
+
+   @Param({ "10" })
+   long seed;
+
+   Vector<Point> points;
+
+   @Setup(Level.Trial)
+   public void build() {
+      points = new UniformPointSource(sites, sites, sites, seed).toVector();
+      new FortuneDiagram(50000, 50000, points);
+   }
+
+   @Benchmark
+   public SpanningTree spanningTree() {
+      return SpanningTree.build(points, threads);
+   }
+}
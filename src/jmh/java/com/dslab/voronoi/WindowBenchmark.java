@@ -0,0 +1,56 @@
+package com.dslab.voronoi;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * A SlidingWindowDiagram at steady state: the window is full, so every op is
+ * one site coming in and the oldest one expiring, one insert and one delete.
+ * Sites are uniform over a window x window grid, like InsertBenchmark's.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class WindowBenchmark {
+
+   @Param({ "10000", "100000" })
+   int window;
+
+   @Param({ "10" })
+   long seed;
+
+   SlidingWindowDiagram diagram;
+   Random rand;
+   long time;
+
+   @Setup(Level.Trial)
+   public void fill() {
+      diagram = new SlidingWindowDiagram(50000, 50000, window);
+      rand = new Random(seed);
+      time = 0;
+      while (time < window) {
+         arrive();
+      }
+   }
+
+   @Benchmark
+   public boolean arrive() {
+      return diagram.add(new Point(rand.nextInt(window), rand.nextInt(window)), time++);
+   }
+}
@@ -0,0 +1,292 @@
+package com.dslab.voronoi;
+
+/**
+ * The beach line of FortuneDiagram's sweep: its arcs from bottom to top (in y)
+ * as a red-black tree. The arcs carry no key, their order is only the order
+ * they were inserted in (FortuneDiagram finds where a new arc goes by
+ * computing breakpoints on the way down), so the tree only needs insert after
+ * a given arc and remove. Arcs are also threaded with prev/next so neighbors
+ * are O(1).
+ */
+class BeachLine {
+
+   static class Arc {
+      final Point site;
+      // the edge traced by the breakpoint between this arc and prev
+      FortuneDiagram.Edge edge;
+      // the pending event that squeezes this arc out, if any
+      FortuneDiagram.Circle circle;
+
+      Arc prev, next;
+      private Arc parent, left, right;
+      private boolean red;
+
+      Arc(Point site) {
+         this.site = site;
+      }
+   }
+
+   Arc root;
+
+   /**
+    * Insert arc right after node, or first if node is null
+    */
+   void insertAfter(Arc node, Arc arc) {
+      Arc parent;
+      if (node != null) {
+         arc.prev = node;
+         arc.next = node.next;
+         if (node.next != null) {
+            node.next.prev = arc;
+         }
+         node.next = arc;
+         if (node.right != null) {
+            // the leftmost spot of the right subtree
+            node = node.right;
+            while (node.left != null) {
+               node = node.left;
+            }
+            node.left = arc;
+         } else {
+            node.right = arc;
+         }
+         parent = node;
+      } else if (root != null) {
+         node = first(root);
+         arc.prev = null;
+         arc.next = node;
+         node.prev = arc;
+         node.left = arc;
+         parent = node;
+      } else {
+         arc.prev = arc.next = null;
+         root = arc;
+         parent = null;
+      }
+      arc.left = arc.right = null;
+      arc.parent = parent;
+      arc.red = true;
+
+      // restore the red-black rules going up
+      node = arc;
+      while (parent != null && parent.red) {
+         Arc grandpa = parent.parent;
+         if (parent == grandpa.left) {
+            Arc uncle = grandpa.right;
+            if (uncle != null && uncle.red) {
+               parent.red = uncle.red = false;
+               grandpa.red = true;
+               node = grandpa;
+            } else {
+               if (node == parent.right) {
+                  rotateLeft(parent);
+                  node = parent;
+                  parent = node.parent;
+               }
+               parent.red = false;
+               grandpa.red = true;
+               rotateRight(grandpa);
+            }
+         } else {
+            Arc uncle = grandpa.left;
+            if (uncle != null && uncle.red) {
+               parent.red = uncle.red = false;
+               grandpa.red = true;
+               node = grandpa;
+            } else {
+               if (node == parent.left) {
+                  rotateRight(parent);
+                  node = parent;
+                  parent = node.parent;
+               }
+               parent.red = false;
+               grandpa.red = true;
+               rotateLeft(grandpa);
+            }
+         }
+         parent = node.parent;
+      }
+      root.red = false;
+   }
+
+   void remove(Arc node) {
+      if (node.next != null) {
+         node.next.prev = node.prev;
+      }
+      if (node.prev != null) {
+         node.prev.next = node.next;
+      }
+      node.next = node.prev = null;
+
+      Arc parent = node.parent;
+      Arc left = node.left;
+      Arc right = node.right;
+      Arc next = (left == null) ? right : (right == null) ? left : first(right);
+      if (parent != null) {
+         if (parent.left == node) {
+            parent.left = next;
+         } else {
+            parent.right = next;
+         }
+      } else {
+         root = next;
+      }
+
+      boolean isRed;
+      if (left != null && right != null) {
+         // next (the successor) takes node's place and color
+         isRed = next.red;
+         next.red = node.red;
+         next.left = left;
+         left.parent = next;
+         if (next != right) {
+            parent = next.parent;
+            next.parent = node.parent;
+            node = next.right;
+            parent.left = node;
+            next.right = right;
+            right.parent = next;
+         } else {
+            next.parent = parent;
+            parent = next;
+            node = next.right;
+         }
+      } else {
+         isRed = node.red;
+         node = next;
+      }
+      // node took the removed black's place, parent is its parent
+      if (node != null) {
+         node.parent = parent;
+      }
+      if (isRed) {
+         return;
+      }
+      if (node != null && node.red) {
+         node.red = false;
+         return;
+      }
+
+      Arc sibling;
+      do {
+         if (node == root) {
+            break;
+         }
+         if (node == parent.left) {
+            sibling = parent.right;
+            if (sibling.red) {
+               sibling.red = false;
+               parent.red = true;
+               rotateLeft(parent);
+               sibling = parent.right;
+            }
+            if (isRed(sibling.left) || isRed(sibling.right)) {
+               if (!isRed(sibling.right)) {
+                  sibling.left.red = false;
+                  sibling.red = true;
+                  rotateRight(sibling);
+                  sibling = parent.right;
+               }
+               sibling.red = parent.red;
+               parent.red = sibling.right.red = false;
+               rotateLeft(parent);
+               node = root;
+               break;
+            }
+         } else {
+            sibling = parent.left;
+            if (sibling.red) {
+               sibling.red = false;
+               parent.red = true;
+               rotateRight(parent);
+               sibling = parent.left;
+            }
+            if (isRed(sibling.left) || isRed(sibling.right)) {
+               if (!isRed(sibling.left)) {
+                  sibling.right.red = false;
+                  sibling.red = true;
+                  rotateLeft(sibling);
+                  sibling = parent.left;
+               }
+               sibling.red = parent.red;
+               parent.red = sibling.left.red = false;
+               rotateRight(parent);
+               node = root;
+               break;
+            }
+         }
+         sibling.red = true;
+         node = parent;
+         parent = parent.parent;
+      } while (!node.red);
+      if (node != null) {
+         node.red = false;
+      }
+   }
+
+   // the bottom arc, null if there are none
+   Arc first() {
+      return (root == null) ? null : first(root);
+   }
+
+   private static Arc first(Arc node) {
+      while (node.left != null) {
+         node = node.left;
+      }
+      return node;
+   }
+
+   static Arc left(Arc node) {
+      return node.left;
+   }
+
+   static Arc right(Arc node) {
+      return node.right;
+   }
+
+   private static boolean isRed(Arc node) {
+      return node != null && node.red;
+   }
+
+   private void rotateLeft(Arc p) {
+      Arc q = p.right;
+      Arc parent = p.parent;
+      if (parent != null) {
+         if (parent.left == p) {
+            parent.left = q;
+         } else {
+            parent.right = q;
+         }
+      } else {
+         root = q;
+      }
+      q.parent = parent;
+      p.parent = q;
+      p.right = q.left;
+      if (p.right != null) {
+         p.right.parent = p;
+      }
+      q.left = p;
+   }
+
+   private void rotateRight(Arc p) {
+      Arc q = p.left;
+      Arc parent = p.parent;
+      if (parent != null) {
+         if (parent.left == p) {
+            parent.left = q;
+         } else {
+            parent.right = q;
+         }
+      } else {
+         root = q;
+      }
+      q.parent = parent;
+      p.parent = q;
+      p.left = q.right;
+      if (p.left != null) {
+         p.left.parent = p;
+      }
+      q.right = p;
+   }
+}
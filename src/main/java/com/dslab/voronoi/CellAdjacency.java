@@ -0,0 +1,144 @@
+package com.dslab.voronoi;
+
+import java.util.Stack;
+import java.util.Vector;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * The graph of neighboring cells in compressed sparse row form: the neighbors
+ * of site s are neighbor(first(s)) to neighbor(first(s + 1) - 1), site
+ * indexes into the diagram's points vector in counter clockwise order around
+ * s. Every shared edge shows up twice, once from each side.
+ *
+ * Optionally each entry carries the length of the edge the two cells share,
+ * infinite when the edge goes off to infinity. Nothing refers back to the
+ * Points or Lines, so the diagram can be dropped once the graph is built.
+ *
+ * Offsets are a prefix sum of the ring sizes, after which ranges of sites fill
+ * their own stretch of the arrays in parallel on a fork/join pool.
+ */
+public class CellAdjacency {
+   // sites per task
+   private static final int CUTOFF = 4096;
+
+   private final int[] first;
+   private final int[] neighbors;
+   // null unless asked for
+   private final double[] lengths;
+
+   private CellAdjacency(int[] first, boolean weighted) {
+      this.first = first;
+      int entries = first[first.length - 1];
+      neighbors = new int[entries];
+      lengths = weighted ? new double[entries] : null;
+   }
+
+   /**
+    * Build the graph of a finished diagram with the given number of threads
+    *
+    * @param points   the sites the diagram was built from
+    * @param weighted whether to keep the shared edge lengths
+    */
+   public static CellAdjacency build(Vector<Point> points, boolean weighted, int threads) {
+      ForkJoinPool pool = new ForkJoinPool(threads);
+      try {
+         return build(points, weighted, pool);
+      } finally {
+         pool.shutdown();
+      }
+   }
+
+   public static CellAdjacency build(Vector<Point> points, boolean weighted, ForkJoinPool pool) {
+      Point[] sites = points.toArray(new Point[0]);
+      int[] first = new int[sites.length + 1];
+      for (int s = 0; s < sites.length; s++) {
+         first[s + 1] = first[s] + sites[s].getLines().size();
+      }
+      CellAdjacency graph = new CellAdjacency(first, weighted);
+      pool.invoke(graph.new FillTask(sites, 0, sites.length));
+      return graph;
+   }
+
+   private class FillTask extends RecursiveAction {
+      private final Point[] sites;
+      private final int lower;
+      private final int upper;
+
+      FillTask(Point[] sites, int lower, int upper) {
+         this.sites = sites;
+         this.lower = lower;
+         this.upper = upper;
+      }
+
+      @Override
+      protected void compute() {
+         if (upper - lower > CUTOFF) {
+            int mid = (lower + upper) >>> 1;
+            invokeAll(new FillTask(sites, lower, mid), new FillTask(sites, mid, upper));
+            return;
+         }
+         for (int s = lower; s < upper; s++) {
+            Point p = sites[s];
+            Stack<Line> ring = p.getLines();
+            int at = first[s];
+            for (int i = 0; i < ring.size(); i++) {
+               Line l = ring.get(i);
+               neighbors[at] = ((l.getP0() == p) ? l.getP1() : l.getP0()).getId();
+               if (lengths != null) {
+                  lengths[at] = l.fullyBounded() ? l.getSrc().distance(l.getEnd()) : Double.POSITIVE_INFINITY;
+               }
+               at++;
+            }
+         }
+      }
+   }
+
+   public int siteCount() {
+      return first.length - 1;
+   }
+
+   // twice the number of shared edges
+   public int entryCount() {
+      return neighbors.length;
+   }
+
+   // index of site s's first neighbor entry
+   public int first(int s) {
+      return first[s];
+   }
+
+   public int degree(int s) {
+      return first[s + 1] - first[s];
+   }
+
+   public int neighbor(int entry) {
+      return neighbors[entry];
+   }
+
+   // length of the edge shared with the entry's neighbor
+   public double length(int entry) {
+      return lengths[entry];
+   }
+
+   public boolean isWeighted() {
+      return lengths != null;
+   }
+
+   /**
+    * The row offsets, siteCount() + 1 of them. The arrays handed out are the
+    * graph's own, not copies
+    */
+   public int[] getOffsets() {
+      return first;
+   }
+
+   public int[] getNeighbors() {
+      return neighbors;
+   }
+
+   // null if the graph was built without weights
+   public double[] getLengths() {
+      return lengths;
+   }
+}
@@ -0,0 +1,128 @@
+package com.dslab.voronoi;
+
+/**
+ * A site's cell cut out of a rectangle: the rectangle clipped by the half
+ * plane towards the site of every edge around it. The result is exact up to
+ * rounding whatever the diagram's unbounded ends look like, and the buffers
+ * are kept between cells, so one clipper per worker thread does every cell
+ * it's handed without allocating. The polygon is counter clockwise, kept
+ * relative to the site so big coordinates don't cost precision.
+ */
+class CellClipper {
+   private double[] xs = new double[16];
+   private double[] ys = new double[16];
+   private double[] nx = new double[16];
+   private double[] ny = new double[16];
+   private int size;
+   private double px;
+   private double py;
+
+   /**
+    * Clip p's cell to minX..maxX, minY..maxY. A site with no edges gets the
+    * whole rectangle
+    *
+    * @return the number of corners, 0 if none of the cell is in the rectangle
+    */
+   int clip(Point p, double minX, double minY, double maxX, double maxY) {
+      px = p.getX();
+      py = p.getY();
+      size = 4;
+      xs[0] = minX - px;
+      ys[0] = minY - py;
+      xs[1] = maxX - px;
+      ys[1] = minY - py;
+      xs[2] = maxX - px;
+      ys[2] = maxY - py;
+      xs[3] = minX - px;
+      ys[3] = maxY - py;
+      for (Line l : p.getLines()) {
+         Point q = (l.getP0() == p) ? l.getP1() : l.getP0();
+         double dx = q.getX() - px, dy = q.getY() - py;
+         cut(dx, dy, (dx * dx + dy * dy) / 2);
+         if (size == 0) {
+            break;
+         }
+      }
+      return size;
+   }
+
+   double x(int j) {
+      return px + xs[j];
+   }
+
+   double y(int j) {
+      return py + ys[j];
+   }
+
+   // area of the last clipped cell
+   double area() {
+      double area = 0;
+      for (int j = 0; j < size; j++) {
+         int k = (j + 1 == size) ? 0 : j + 1;
+         area += xs[j] * ys[k] - xs[k] * ys[j];
+      }
+      return area / 2;
+   }
+
+   // perimeter of the last clipped cell
+   double perimeter() {
+      double length = 0;
+      for (int j = 0; j < size; j++) {
+         int k = (j + 1 == size) ? 0 : j + 1;
+         length += Math.hypot(xs[k] - xs[j], ys[k] - ys[j]);
+      }
+      return length;
+   }
+
+   /**
+    * Centroid of the last clipped cell into at[0], at[1]
+    *
+    * @return false if the cell has no area, leaving at alone
+    */
+   boolean centroid(double[] at) {
+      double area = 0, sx = 0, sy = 0;
+      for (int j = 0; j < size; j++) {
+         int k = (j + 1 == size) ? 0 : j + 1;
+         double cross = xs[j] * ys[k] - xs[k] * ys[j];
+         area += cross;
+         sx += (xs[j] + xs[k]) * cross;
+         sy += (ys[j] + ys[k]) * cross;
+      }
+      if (area <= 0) {
+         return false;
+      }
+      at[0] = px + sx / (3 * area);
+      at[1] = py + sy / (3 * area);
+      return true;
+   }
+
+   // keep the part of the polygon where x * dx + y * dy <= c
+   private void cut(double dx, double dy, double c) {
+      if (nx.length < 2 * size) {
+         nx = new double[2 * size];
+         ny = new double[2 * size];
+      }
+      int out = 0;
+      for (int j = 0; j < size; j++) {
+         int k = (j + 1 == size) ? 0 : j + 1;
+         double sj = xs[j] * dx + ys[j] * dy - c;
+         double sk = xs[k] * dx + ys[k] * dy - c;
+         if (sj <= 0) {
+            nx[out] = xs[j];
+            ny[out++] = ys[j];
+         }
+         if (sj <= 0 != sk <= 0) {
+            double t = sj / (sj - sk);
+            nx[out] = xs[j] + t * (xs[k] - xs[j]);
+            ny[out++] = ys[j] + t * (ys[k] - ys[j]);
+         }
+      }
+      double[] swap = xs;
+      xs = nx;
+      nx = swap;
+      swap = ys;
+      ys = ny;
+      ny = swap;
+      size = out;
+   }
+}
@@ -0,0 +1,216 @@
+package com.dslab.voronoi;
+
+import java.util.Vector;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import org.locationtech.jts.geom.Coordinate;
+
+/**
+ * Every site's cell as a closed counter clockwise polygon, clipped to a
+ * rectangle. The corners of all cells are packed into two coordinate arrays,
+ * the corners of site s running from first(s) to first(s + 1), so nothing is
+ * allocated per cell.
+ *
+ * A cell whose edges are all bounded and inside the rectangle is just its
+ * vertices in ring order. Cells that reach out of the rectangle are clipped by
+ * the half planes of their neighbors instead (CellClipper), so the unbounded
+ * edges reaching out to +-size_x don't matter. Sites are split into ranges
+ * that are done in parallel on a fork/join pool, twice: once to count every
+ * cell's corners, which places them in the arrays, and once to write them.
+ * Only the cells on the rectangle's border are clipped both times.
+ */
+public class CellPolygons {
+   // sites per task
+   private static final int CUTOFF = 4096;
+
+   private final double minX;
+   private final double minY;
+   private final double maxX;
+   private final double maxY;
+
+   // corners of site s are first[s] to first[s + 1] - 1
+   private final int[] first;
+   private double[] xs;
+   private double[] ys;
+
+   private CellPolygons(int sites, double minX, double minY, double maxX, double maxY) {
+      this.minX = minX;
+      this.minY = minY;
+      this.maxX = maxX;
+      this.maxY = maxY;
+      first = new int[sites + 1];
+   }
+
+   /**
+    * Clip the cells of a finished diagram to minX..maxX, minY..maxY with the
+    * given number of threads
+    *
+    * @param points the sites the diagram was built from
+    */
+   public static CellPolygons build(Vector<Point> points, double minX, double minY, double maxX, double maxY,
+         int threads) {
+      ForkJoinPool pool = new ForkJoinPool(threads);
+      try {
+         return build(points, minX, minY, maxX, maxY, pool);
+      } finally {
+         pool.shutdown();
+      }
+   }
+
+   public static CellPolygons build(Vector<Point> points, double minX, double minY, double maxX, double maxY,
+         ForkJoinPool pool) {
+      if (minX > maxX || minY > maxY) {
+         throw new IllegalArgumentException("empty rectangle " + minX + ", " + minY + " to " + maxX + ", " + maxY);
+      }
+      Point[] sites = points.toArray(new Point[0]);
+      CellPolygons cells = new CellPolygons(sites.length, minX, minY, maxX, maxY);
+      int[] first = cells.first;
+      pool.invoke(cells.new CellTask(sites, 0, sites.length, true));
+      // first[s + 1] holds the count of site s until here
+      for (int s = 0; s < sites.length; s++) {
+         first[s + 1] += first[s];
+      }
+      cells.xs = new double[first[sites.length]];
+      cells.ys = new double[first[sites.length]];
+      pool.invoke(cells.new CellTask(sites, 0, sites.length, false));
+      return cells;
+   }
+
+   private class CellTask extends RecursiveAction {
+      private final Point[] sites;
+      private final int lower;
+      private final int upper;
+      // count the corners rather than write them
+      private final boolean count;
+
+      CellTask(Point[] sites, int lower, int upper, boolean count) {
+         this.sites = sites;
+         this.lower = lower;
+         this.upper = upper;
+         this.count = count;
+      }
+
+      @Override
+      protected void compute() {
+         if (upper - lower > CUTOFF) {
+            int mid = (lower + upper) >>> 1;
+            invokeAll(new CellTask(sites, lower, mid, count), new CellTask(sites, mid, upper, count));
+            return;
+         }
+         CellClipper clipper = new CellClipper();
+         for (int s = lower; s < upper; s++) {
+            Point p = sites[s];
+            // a site on top of another has no cell
+            if (p.getLines().isEmpty() && sites.length > 1) {
+               continue;
+            }
+            Line[] ring = p.getLines().toArray(new Line[0]);
+            if (count) {
+               int k = closed(ring, minX, minY, maxX, maxY);
+               first[s + 1] = (k > 0) ? k : clipper.clip(p, minX, minY, maxX, maxY);
+               continue;
+            }
+            int at = first[s];
+            if (closed(ring, minX, minY, maxX, maxY) > 0) {
+               for (int i = 0; i < ring.length; i++) {
+                  Coordinate v = corner(ring[i], ring[(i + 1) % ring.length]);
+                  xs[at + i] = v.x;
+                  ys[at + i] = v.y;
+               }
+            } else {
+               int k = clipper.clip(p, minX, minY, maxX, maxY);
+               for (int j = 0; j < k; j++) {
+                  xs[at + j] = clipper.x(j);
+                  ys[at + j] = clipper.y(j);
+               }
+            }
+         }
+      }
+   }
+
+   /**
+    * Whether a cell is closed and inside the rectangle, every edge bounded and
+    * sharing a vertex with the next one around it. Its corners are then the
+    * vertices between one edge and the next, see corner
+    *
+    * @return the number of corners, -1 if it has to be clipped
+    */
+   static int closed(Line[] ring, double minX, double minY, double maxX, double maxY) {
+      if (ring.length < 3) {
+         return -1;
+      }
+      for (int i = 0; i < ring.length; i++) {
+         Line l = ring[i];
+         if (!l.isSrcBound() || !l.isEndBound() || corner(l, ring[(i + 1) % ring.length]) == null) {
+            return -1;
+         }
+         Coordinate a = l.getSrc(), b = l.getEnd();
+         if (a.x < minX || a.x > maxX || a.y < minY || a.y > maxY || b.x < minX || b.x > maxX || b.y < minY
+               || b.y > maxY) {
+            return -1;
+         }
+      }
+      return ring.length;
+   }
+
+   // the vertex l and m share, null if none
+   static Coordinate corner(Line l, Line m) {
+      if (l.getSrc() == m.getSrc() || l.getSrc() == m.getEnd()) {
+         return l.getSrc();
+      }
+      return (l.getEnd() == m.getSrc() || l.getEnd() == m.getEnd()) ? l.getEnd() : null;
+   }
+
+   public int siteCount() {
+      return first.length - 1;
+   }
+
+   public int cornerCount() {
+      return xs.length;
+   }
+
+   // index of site s's first corner
+   public int first(int s) {
+      return first[s];
+   }
+
+   // corners of site s's cell, 0 if none of it is in the rectangle
+   public int corners(int s) {
+      return first[s + 1] - first[s];
+   }
+
+   public double x(int corner) {
+      return xs[corner];
+   }
+
+   public double y(int corner) {
+      return ys[corner];
+   }
+
+   // area of site s's clipped cell
+   public double area(int s) {
+      double area = 0;
+      for (int j = first[s]; j < first[s + 1]; j++) {
+         int k = (j + 1 == first[s + 1]) ? first[s] : j + 1;
+         area += xs[j] * ys[k] - xs[k] * ys[j];
+      }
+      return area / 2;
+   }
+
+   public double getMinX() {
+      return minX;
+   }
+
+   public double getMinY() {
+      return minY;
+   }
+
+   public double getMaxX() {
+      return maxX;
+   }
+
+   public double getMaxY() {
+      return maxY;
+   }
+}
@@ -0,0 +1,302 @@
+package com.dslab.voronoi;
+
+import java.util.Vector;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+import org.locationtech.jts.geom.Coordinate;
+
+/**
+ * Aggregate statistics of the cells of a finished diagram, gathered in one
+ * pass over the per site edges without building any polygons: area and
+ * perimeter of every cell clipped to a rectangle, how many neighbors each site
+ * has and how many cells meet at each Voronoi vertex.
+ *
+ * Sites are split into ranges on a fork/join pool. Each range fills its own
+ * CellStatistics of sums and histogram counts and the ranges are merged on
+ * the way back up. Areas and perimeters are binned relative to the mean cell,
+ * the rectangle's area over the number of sites, so the bins don't depend on
+ * the order the ranges are done in and serial and parallel runs agree.
+ */
+public class CellStatistics {
+   // sites per task
+   private static final int CUTOFF = 4096;
+
+   /** bins of the area and perimeter histograms, the last one is open ended */
+   public static final int BINS = 32;
+
+   // neighbor counts and vertex degrees at or above this share the last bin
+   private static final int DEGREES = 32;
+
+   private final double minX;
+   private final double minY;
+   private final double maxX;
+   private final double maxY;
+   private final double areaBin;
+   private final double perimeterBin;
+
+   // cells with some area in the rectangle
+   private int cells;
+   private double areaSum;
+   private double areaSquares;
+   private double areaMin = Double.POSITIVE_INFINITY;
+   private double areaMax;
+   private double perimeterSum;
+   private double perimeterSquares;
+   private double perimeterMin = Double.POSITIVE_INFINITY;
+   private double perimeterMax;
+   private final long[] areas = new long[BINS];
+   private final long[] perimeters = new long[BINS];
+   private final long[] neighbors = new long[DEGREES];
+   private final long[] degrees = new long[DEGREES];
+
+   private CellStatistics(double minX, double minY, double maxX, double maxY, int sites) {
+      this.minX = minX;
+      this.minY = minY;
+      this.maxX = maxX;
+      this.maxY = maxY;
+      double mean = (maxX - minX) * (maxY - minY) / Math.max(sites, 1);
+      // a mean cell lands in bin 8 of either histogram, a regular hexagon's
+      // perimeter being about 3.7 times the square root of its area
+      areaBin = mean / 8;
+      perimeterBin = 4 * Math.sqrt(mean) / 8;
+   }
+
+   /**
+    * Gather the statistics of a finished diagram with the given number of
+    * threads, cells clipped to minX..maxX, minY..maxY
+    *
+    * @param points the sites the diagram was built from
+    */
+   public static CellStatistics collect(Vector<Point> points, double minX, double minY, double maxX, double maxY,
+         int threads) {
+      ForkJoinPool pool = new ForkJoinPool(threads);
+      try {
+         return collect(points, minX, minY, maxX, maxY, pool);
+      } finally {
+         pool.shutdown();
+      }
+   }
+
+   public static CellStatistics collect(Vector<Point> points, double minX, double minY, double maxX, double maxY,
+         ForkJoinPool pool) {
+      if (minX >= maxX || minY >= maxY) {
+         throw new IllegalArgumentException("empty rectangle " + minX + ", " + minY + " to " + maxX + ", " + maxY);
+      }
+      Point[] sites = points.toArray(new Point[0]);
+      return pool.invoke(new StatisticsTask(sites, 0, sites.length, minX, minY, maxX, maxY));
+   }
+
+   private static class StatisticsTask extends RecursiveTask<CellStatistics> {
+      private final Point[] sites;
+      private final int lower;
+      private final int upper;
+      private final double minX;
+      private final double minY;
+      private final double maxX;
+      private final double maxY;
+
+      StatisticsTask(Point[] sites, int lower, int upper, double minX, double minY, double maxX, double maxY) {
+         this.sites = sites;
+         this.lower = lower;
+         this.upper = upper;
+         this.minX = minX;
+         this.minY = minY;
+         this.maxX = maxX;
+         this.maxY = maxY;
+      }
+
+      @Override
+      protected CellStatistics compute() {
+         if (upper - lower > CUTOFF) {
+            int mid = (lower + upper) >>> 1;
+            StatisticsTask right = new StatisticsTask(sites, mid, upper, minX, minY, maxX, maxY);
+            right.fork();
+            CellStatistics res = new StatisticsTask(sites, lower, mid, minX, minY, maxX, maxY).compute();
+            res.merge(right.join());
+            return res;
+         }
+         CellStatistics res = new CellStatistics(minX, minY, maxX, maxY, sites.length);
+         CellClipper clipper = new CellClipper();
+         Point[] around = new Point[DEGREES];
+         for (int s = lower; s < upper; s++) {
+            res.add(sites[s], clipper, around);
+         }
+         return res;
+      }
+   }
+
+   private void add(Point p, CellClipper clipper, Point[] around) {
+      Line[] ring = p.getLines().toArray(new Line[0]);
+      // a site on top of another has no cell
+      if (ring.length == 0) {
+         return;
+      }
+      neighbors[Math.min(ring.length, DEGREES - 1)]++;
+      double area, perimeter;
+      if (CellPolygons.closed(ring, minX, minY, maxX, maxY) > 0) {
+         area = 0;
+         perimeter = 0;
+         Coordinate a = CellPolygons.corner(ring[ring.length - 1], ring[0]);
+         for (int i = 0; i < ring.length; i++) {
+            Coordinate b = CellPolygons.corner(ring[i], ring[(i + 1) % ring.length]);
+            // relative to the site so big coordinates don't cost precision
+            area += (a.x - p.getX()) * (b.y - p.getY()) - (b.x - p.getX()) * (a.y - p.getY());
+            perimeter += a.distance(b);
+            a = b;
+         }
+         area /= 2;
+      } else if (clipper.clip(p, minX, minY, maxX, maxY) > 0) {
+         area = clipper.area();
+         perimeter = clipper.perimeter();
+      } else {
+         area = perimeter = -1;
+      }
+      if (area > 0) {
+         cells++;
+         areaSum += area;
+         areaSquares += area * area;
+         areaMin = Math.min(areaMin, area);
+         areaMax = Math.max(areaMax, area);
+         areas[bin(area / areaBin)]++;
+         perimeterSum += perimeter;
+         perimeterSquares += perimeter * perimeter;
+         perimeterMin = Math.min(perimeterMin, perimeter);
+         perimeterMax = Math.max(perimeterMax, perimeter);
+         perimeters[bin(perimeter / perimeterBin)]++;
+      }
+      for (int i = 0; i < ring.length; i++) {
+         Line l = ring[i], m = ring[(i + 1) % ring.length];
+         Coordinate v = CellPolygons.corner(l, m);
+         if (v != null && l.boundAt(v) && m.boundAt(v)) {
+            int k = degree(p, l, m, v, around);
+            if (k > 0) {
+               degrees[Math.min(k, DEGREES - 1)]++;
+            }
+         }
+      }
+   }
+
+   private static int bin(double at) {
+      return (int) Math.min(at, BINS - 1);
+   }
+
+   /**
+    * Number of cells around the vertex v between p's edges l and m. Every
+    * cell around v sees it, so only the site with the lowest id counts it
+    *
+    * @return the count, 0 if another site counts it
+    */
+   private static int degree(Point p, Line l, Line m, Coordinate v, Point[] around) {
+      if (other(l, p).getId() < p.getId() || other(m, p).getId() < p.getId()) {
+         return 0;
+      }
+      int k = p.sitesAround(l, m, v, around);
+      for (int j = 0; j < k; j++) {
+         if (around[j].getId() < p.getId()) {
+            return 0;
+         }
+      }
+      return k;
+   }
+
+   private static Point other(Line l, Point p) {
+      return (l.getP0() == p) ? l.getP1() : l.getP0();
+   }
+
+   private void merge(CellStatistics other) {
+      cells += other.cells;
+      areaSum += other.areaSum;
+      areaSquares += other.areaSquares;
+      areaMin = Math.min(areaMin, other.areaMin);
+      areaMax = Math.max(areaMax, other.areaMax);
+      perimeterSum += other.perimeterSum;
+      perimeterSquares += other.perimeterSquares;
+      perimeterMin = Math.min(perimeterMin, other.perimeterMin);
+      perimeterMax = Math.max(perimeterMax, other.perimeterMax);
+      for (int b = 0; b < BINS; b++) {
+         areas[b] += other.areas[b];
+         perimeters[b] += other.perimeters[b];
+      }
+      for (int d = 0; d < DEGREES; d++) {
+         neighbors[d] += other.neighbors[d];
+         degrees[d] += other.degrees[d];
+      }
+   }
+
+   // cells with some area in the rectangle
+   public int getCells() {
+      return cells;
+   }
+
+   public double getAreaSum() {
+      return areaSum;
+   }
+
+   public double getAreaMean() {
+      return areaSum / cells;
+   }
+
+   public double getAreaDeviation() {
+      return deviation(areaSum, areaSquares);
+   }
+
+   public double getAreaMin() {
+      return areaMin;
+   }
+
+   public double getAreaMax() {
+      return areaMax;
+   }
+
+   public double getPerimeterMean() {
+      return perimeterSum / cells;
+   }
+
+   public double getPerimeterDeviation() {
+      return deviation(perimeterSum, perimeterSquares);
+   }
+
+   public double getPerimeterMin() {
+      return perimeterMin;
+   }
+
+   public double getPerimeterMax() {
+      return perimeterMax;
+   }
+
+   private double deviation(double sum, double squares) {
+      double mean = sum / cells;
+      return Math.sqrt(Math.max(0, squares / cells - mean * mean));
+   }
+
+   // width of an area bin, bin b holding b * width up to (b + 1) * width
+   public double getAreaBin() {
+      return areaBin;
+   }
+
+   public double getPerimeterBin() {
+      return perimeterBin;
+   }
+
+   // cells per area bin
+   public long[] getAreaHistogram() {
+      return areas.clone();
+   }
+
+   public long[] getPerimeterHistogram() {
+      return perimeters.clone();
+   }
+
+   // sites by how many neighbors they have, the last entry counts every site
+   // with that many or more
+   public long[] getNeighborHistogram() {
+      return neighbors.clone();
+   }
+
+   // bounded Voronoi vertices by how many cells meet at them, 3 unless sites
+   // are cocircular
+   public long[] getVertexDegreeHistogram() {
+      return degrees.clone();
+   }
+}
@@ -0,0 +1,45 @@
+package com.dslab.voronoi;
+
+import java.util.Random;
+
+/**
+ * n distinct sites in a few dense clusters: cluster centers are uniform in the
+ * width x height grid and every site is a gaussian step (standard deviation
+ * spread) from a random center, clamped to the grid. Like UniformPointSource
+ * the sites are drawn as packed longs, sorted, and duplicates are redrawn.
+ */
+public class ClusteredPointSource extends PackedPointSource {
+
+   public ClusteredPointSource(int n, int width, int height, int clusters, double spread, long seed) {
+      super(draw(n, width, height, clusters, spread, seed), n);
+   }
+
+   private static long[] draw(int n, int width, int height, int clusters, double spread, long seed) {
+      if ((long) width * height < n) {
+         throw new IllegalArgumentException("cannot place " + n + " distinct points in " + width + " x " + height);
+      }
+      Random rand = new Random(seed);
+      int[] cx = new int[Math.max(clusters, 1)];
+      int[] cy = new int[cx.length];
+      for (int c = 0; c < cx.length; c++) {
+         cx[c] = rand.nextInt(width);
+         cy[c] = rand.nextInt(height);
+      }
+      long[] keys = new long[n];
+      int filled = 0;
+      while (filled < n) {
+         for (int i = filled; i < n; i++) {
+            int c = rand.nextInt(cx.length);
+            int x = clamp(cx[c] + (int) Math.round(rand.nextGaussian() * spread), width);
+            int y = clamp(cy[c] + (int) Math.round(rand.nextGaussian() * spread), height);
+            keys[i] = pack(x, y);
+         }
+         filled = sortUnique(keys, n);
+      }
+      return keys;
+   }
+
+   private static int clamp(int v, int size) {
+      return Math.max(0, Math.min(size - 1, v));
+   }
+}
@@ -0,0 +1,41 @@
+package com.dslab.voronoi;
+
+import java.util.NoSuchElementException;
+import java.util.Random;
+
+/**
+ * The Driver's synthetic workload: one site in every column x = 0..n-1 at a
+ * random y in [0, height). Columns are produced left to right so the points
+ * come out sorted and can never collide, and nothing but the Random is kept
+ * in memory.
+ */
+public class ColumnPointSource implements PointSource {
+   private final int n;
+   private final int height;
+   private final Random rand;
+   private int x = 0;
+
+   public ColumnPointSource(int n, int height, long seed) {
+      this.n = n;
+      this.height = height;
+      this.rand = new Random(seed);
+   }
+
+   @Override
+   public int size() {
+      return n;
+   }
+
+   @Override
+   public boolean hasNext() {
+      return x < n;
+   }
+
+   @Override
+   public Point next() {
+      if (x >= n) {
+         throw new NoSuchElementException();
+      }
+      return new Point(x++, rand.nextInt(height));
+   }
+}
@@ -9,7 +9,6 @@ import java.util.Stack;
 import java.util.Vector;
 
 import org.locationtech.jts.algorithm.Angle;
-import org.locationtech.jts.geom.LineSegment;
 
 /**
  * This Convex Hull class is specific to the voronoi algorithm.
@@ -78,16 +77,10 @@ public class ConvexHull {
       return rightmost;
    }
 
+   // 1 if a, b, c turn clockwise, -1 if counter clockwise, 0 if on one line.
+   // exact, see Predicates
    int orientation(Point a, Point b, Point c) {
-      double res = (b.getY() - a.getY()) * (c.getX() - b.getX()) - (c.getY() - b.getY()) * (b.getX() - a.getX());
-
-      if (-0.000001 < res && res < 0.000001) {
-         return 0;
-      }
-      if (res > 0) {
-         return 1;
-      }
-      return -1;
+      return -Predicates.orient(a, b, c);
    }
 
    private static int modulo(int a, int b) {
@@ -107,7 +100,7 @@ public class ConvexHull {
     * @return bridge points in counterclockwise direction (upper bridge is
     *         right->left and lower bridge is left->right)
     */
-   private Vector<Integer> getBridge(ConvexHull left, ConvexHull right, int ia, int ib) {
+   Vector<Integer> getBridge(ConvexHull left, ConvexHull right, int ia, int ib) {
       boolean done = false;
       while (!done) {
          done = true;
@@ -265,12 +258,13 @@ public class ConvexHull {
    }
 
    private static void checkIfPointsOnLine(Vector<Point> leftBridge, Vector<Point> rightBridge) {
-      Line botBridge = new Line(leftBridge.get(0).getCoordinate(), rightBridge.get(0).getCoordinate());
+      Point botLeft = leftBridge.get(0);
+      Point botRight = rightBridge.get(0);
 
-      if (leftBridge.size() == 2 && botBridge.containsPoint(leftBridge.get(1))) {
+      if (leftBridge.size() == 2 && Predicates.onSegment(botLeft, botRight, leftBridge.get(1))) {
          Collections.swap(leftBridge, 0, 1);
       }
-      if (rightBridge.size() == 2 && botBridge.containsPoint(rightBridge.get(1))) {
+      if (rightBridge.size() == 2 && Predicates.onSegment(botLeft, botRight, rightBridge.get(1))) {
          Collections.swap(rightBridge, 0, 1);
       }
 
@@ -278,15 +272,15 @@ public class ConvexHull {
 
    private static boolean allPointsOnLine(Vector<Point> leftBridge, Vector<Point> rightBridge) {
 
-      Line line = new Line(leftBridge.get(leftBridge.size() - 1).getCoordinate(), rightBridge.get(
-            rightBridge.size() - 1).getCoordinate());
+      Point a = leftBridge.get(leftBridge.size() - 1);
+      Point b = rightBridge.get(rightBridge.size() - 1);
       for (Point p : leftBridge) {
-         if (!line.containsPoint(p)) {
+         if (!Predicates.onSegment(a, b, p)) {
             return false;
          }
       }
       for (Point p : rightBridge) {
-         if (!line.containsPoint(p)) {
+         if (!Predicates.onSegment(a, b, p)) {
             return false;
          }
       }
@@ -298,13 +292,11 @@ public class ConvexHull {
       Point leftBridgeB1 = leftBridge.remove(leftBridge.size() - 1);
       Point rightBridgeA2 = rightBridge.remove(rightBridge.size() - 1);
       Point rightBridgeB2 = rightBridge.remove(rightBridge.size() - 1);
-      LineSegment bridgeA = new LineSegment(leftBridgeA1.getCoordinate(), rightBridgeA2.getCoordinate());
-      LineSegment bridgeB = new LineSegment(leftBridgeB1.getCoordinate(), rightBridgeB2.getCoordinate());
 
       // I oriented each bridge so that they start from left and end at right
       // this means that from the perspective of each bridge, the rightmost bridge of
       // the two will always be the lower one
-      int orientationOfB = bridgeA.orientationIndex(bridgeB); // returns 1 if B is left of A
+      int orientationOfB = sideOf(leftBridgeA1, rightBridgeA2, leftBridgeB1, rightBridgeB2); // 1 if B is left of A
       if (orientationOfB == 1) { // bridge A is rightmost (bottom)
          leftBridge.add(leftBridgeA1);
          leftBridge.add(leftBridgeB1);
@@ -320,6 +312,21 @@ public class ConvexHull {
 
    }
 
+   // which side of the line a0 -> a1 the segment b0 - b1 is on: 1 if left, -1 if
+   // right, 0 if it crosses or touches it from both sides (same as JTS's
+   // LineSegment.orientationIndex but exact)
+   private static int sideOf(Point a0, Point a1, Point b0, Point b1) {
+      int o0 = Predicates.orient(a0, a1, b0);
+      int o1 = Predicates.orient(a0, a1, b1);
+      if (o0 >= 0 && o1 >= 0) {
+         return Math.max(o0, o1);
+      }
+      if (o0 <= 0 && o1 <= 0) {
+         return Math.min(o0, o1);
+      }
+      return 0;
+   }
+
    // in this special case, we want to find which of the two points from the larger
    // bridge is closer to 90 degrees with respect to the single bridge point
    // This is because it is already a given that the two large bridge points will
@@ -0,0 +1,135 @@
+package com.dslab.voronoi;
+
+import java.util.Arrays;
+import java.util.Vector;
+
+import org.locationtech.jts.geom.Coordinate;
+
+/**
+ * The Delaunay triangulation dual to a finished diagram, read off the stitch
+ * rather than triangulated again. Sites are referred to by their index in the
+ * points vector and everything is kept in int arrays.
+ *
+ * Every Line bisects two sites, so every Line is a Delaunay edge. Every
+ * bounded Voronoi vertex is the circumcenter of the sites whose cells meet
+ * there, three unless the sites are cocircular, so every vertex is a triangle
+ * or, for k cocircular sites, a fan of k - 2 triangles out of the one with the
+ * lowest index. The diagonals of such a fan have no Line and are not among the
+ * edges. Triangles are counter clockwise and each is emitted once, by the
+ * lowest index site around its vertex.
+ */
+public class DelaunayMesh {
+   // cocircular sites beyond this many around one vertex are left out
+   private static final int MAX_AROUND = 64;
+
+   // site pairs, lower index first
+   private final int[] edges;
+   private int[] triangles;
+   private int triangleCount;
+
+   private DelaunayMesh(int edgeCount, int triangleCapacity) {
+      edges = new int[2 * edgeCount];
+      triangles = new int[3 * Math.max(triangleCapacity, 1)];
+   }
+
+   /**
+    * Read the triangulation off the per site edges of a finished diagram
+    *
+    * @param points the sites the diagram was built from
+    */
+   public static DelaunayMesh build(Vector<Point> points) {
+      int sides = 0;
+      for (int s = 0; s < points.size(); s++) {
+         sides += points.get(s).getLines().size();
+      }
+      // a triangulation of n sites has fewer than 2n triangles
+      DelaunayMesh mesh = new DelaunayMesh(sides / 2, 2 * points.size());
+      Point[] around = new Point[MAX_AROUND];
+      int[] at = new int[MAX_AROUND];
+      int e = 0;
+      for (int s = 0; s < points.size(); s++) {
+         Point p = points.get(s);
+         Line[] ring = p.getLines().toArray(new Line[0]);
+         for (int i = 0; i < ring.length; i++) {
+            Line l = ring[i];
+            int t = ((l.getP0() == p) ? l.getP1() : l.getP0()).getId();
+            if (t < s) {
+               continue;
+            }
+            mesh.edges[e++] = s;
+            mesh.edges[e++] = t;
+            Line m = ring[(i + 1) % ring.length];
+            Coordinate v = CellPolygons.corner(l, m);
+            if (ring.length > 2 && v != null && l.boundAt(v) && m.boundAt(v)
+                  && ((m.getP0() == p) ? m.getP1() : m.getP0()).getId() > s) {
+               mesh.fan(s, p.sitesAround(l, m, v, around), around, at);
+            }
+         }
+      }
+      return mesh;
+   }
+
+   // the triangles of the k sites around a vertex, if s has the lowest index
+   // of them. around runs clockwise, the fan is turned to counter clockwise
+   private void fan(int s, int k, Point[] around, int[] at) {
+      if (k < 3) {
+         return;
+      }
+      for (int j = 0; j < k; j++) {
+         at[j] = around[j].getId();
+         if (at[j] < s) {
+            return;
+         }
+      }
+      for (int j = k - 1; j >= 2; j--) {
+         if (3 * triangleCount == triangles.length) {
+            triangles = Arrays.copyOf(triangles, 2 * triangles.length);
+         }
+         triangles[3 * triangleCount] = s;
+         triangles[3 * triangleCount + 1] = at[j];
+         triangles[3 * triangleCount + 2] = at[j - 1];
+         triangleCount++;
+      }
+   }
+
+   public int edgeCount() {
+      return edges.length / 2;
+   }
+
+   // the lower index site of edge e
+   public int edgeFrom(int e) {
+      return edges[2 * e];
+   }
+
+   public int edgeTo(int e) {
+      return edges[2 * e + 1];
+   }
+
+   public int triangleCount() {
+      return triangleCount;
+   }
+
+   // site at corner j (0, 1 or 2) of triangle t, counter clockwise
+   public int corner(int t, int j) {
+      return triangles[3 * t + j];
+   }
+
+   /**
+    * The edges as site index pairs, from and to of edge e at 2e and 2e + 1.
+    * The array is the mesh's own, not a copy
+    */
+   public int[] getEdges() {
+      return edges;
+   }
+
+   /**
+    * The triangles as site index triples, counter clockwise, trimmed to
+    * triangleCount. Not a copy after the first call
+    */
+   public int[] getTriangles() {
+      if (triangles.length != 3 * triangleCount) {
+         triangles = Arrays.copyOf(triangles, 3 * triangleCount);
+      }
+      return triangles;
+   }
+}
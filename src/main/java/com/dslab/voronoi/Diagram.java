@@ -0,0 +1,120 @@
+package com.dslab.voronoi;
+
+import java.util.Collection;
+import java.util.Vector;
+
+/**
+ * A finished Voronoi diagram, whichever engine built it (VoronoiDiagram or
+ * FortuneDiagram). Both fill the same per site Lines, so editing the diagram
+ * and the passes over its edges are the same code for either, and callers can
+ * pick an engine and keep working with a Diagram.
+ */
+public abstract class Diagram {
+   final int size_x;
+   final int size_y;
+   final Vector<Point> points;
+   // made on the first insert
+   private DiagramEditor editor;
+
+   // numbers the sites for the engine, which then builds their edges
+   Diagram(int size_x, int size_y, Vector<Point> points) {
+      this.size_x = size_x;
+      this.size_y = size_y;
+      this.points = points;
+      Point.number(points);
+   }
+
+   public Vector<Point> getPoints() {
+      return points;
+   }
+
+   /**
+    * Add a site to the finished diagram. Only the cells around the new site
+    * are redone (see DiagramEditor), and the site is appended to getPoints, so
+    * the points are no longer sorted after this
+    *
+    * @return false if there already is a site at p
+    */
+   public boolean insert(Point p) {
+      return editor().insert(p);
+   }
+
+   /**
+    * Add several sites, see insert
+    *
+    * @return how many were new
+    */
+   public int insertAll(Collection<Point> sites) {
+      return editor().insertAll(sites);
+   }
+
+   /**
+    * Take a site out of the finished diagram. Its neighbors share its cell (see
+    * DiagramEditor), and the last site in getPoints moves to its place
+    *
+    * @return false if p isn't one of the sites
+    */
+   public boolean delete(Point p) {
+      return editor().delete(p);
+   }
+
+   /**
+    * Move every site to a new position, site i of getPoints to (x[i], y[i]),
+    * keeping the edges and flipping only those whose neighbors changed (see
+    * DiagramEditor.move). Sites that moved too far are swept again
+    *
+    * @return false if the diagram was swept again
+    */
+   public boolean moveSites(double[] x, double[] y) {
+      return editor().move(x, y);
+   }
+
+   private DiagramEditor editor() {
+      if (editor == null) {
+         editor = new DiagramEditor(size_x, size_y, points);
+      }
+      return editor;
+   }
+
+   /**
+    * The dual Delaunay edges and triangles as site index arrays, read off the
+    * finished diagram (see DelaunayMesh).
+    */
+   public DelaunayMesh getDelaunay() {
+      return DelaunayMesh.build(points);
+   }
+
+   /**
+    * Which cells neighbor which as a compressed sparse row graph, optionally
+    * weighted with the shared edge lengths, built with the given number of
+    * threads (see CellAdjacency).
+    */
+   public CellAdjacency getAdjacency(boolean weighted, int threads) {
+      return CellAdjacency.build(points, weighted, threads);
+   }
+
+   /**
+    * The Euclidean minimum spanning tree of the sites, built from the
+    * neighbor pairs with the given number of threads (see SpanningTree).
+    */
+   public SpanningTree getSpanningTree(int threads) {
+      return SpanningTree.build(points, threads);
+   }
+
+   /**
+    * Every cell as a polygon clipped to minX..maxX, minY..maxY, extracted with
+    * the given number of threads (see CellPolygons).
+    */
+   public CellPolygons getCellPolygons(double minX, double minY, double maxX, double maxY, int threads) {
+      return CellPolygons.build(points, minX, minY, maxX, maxY, threads);
+   }
+
+   /**
+    * Area and perimeter statistics of the cells clipped to minX..maxX,
+    * minY..maxY with neighbor count and vertex degree histograms, gathered
+    * with the given number of threads (see CellStatistics).
+    */
+   public CellStatistics getCellStatistics(double minX, double minY, double maxX, double maxY, int threads) {
+      return CellStatistics.collect(points, minX, minY, maxX, maxY, threads);
+   }
+}
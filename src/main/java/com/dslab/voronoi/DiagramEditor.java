@@ -0,0 +1,1396 @@
+package com.dslab.voronoi;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Random;
+import java.util.Stack;
+import java.util.Vector;
+
+import org.locationtech.jts.geom.Coordinate;
+
+/**
+ * Local changes to a finished diagram, working on the per site Lines directly
+ * so it doesn't matter which engine built them.
+ *
+ * Inserting a site is Bowyer-Watson on the dual: walk from site to neighbor to
+ * the site nearest to the new one, then collect every vertex whose circle has
+ * the new site inside it (a vertex is a shared Coordinate, its sites are found
+ * by walking around it through the sites' counter clockwise rings). The
+ * unbounded end of an edge on the hull counts as in conflict when the new site
+ * is outside that hull edge. Edges with both ends in conflict are removed,
+ * edges with one end in conflict get a new vertex there, and the new site gets
+ * an edge to every site around the hole. Nothing else is touched, so the cost
+ * is the number of changed edges plus the walk.
+ *
+ * Diagrams with no vertices yet (fewer than 3 sites, or all on one line) are
+ * rebuilt with FortuneDiagram instead.
+ */
+class DiagramEditor {
+   // no sane vertex has more sites around it. a longer walk means a broken ring
+   private static final int MAX_STAR = 64;
+   // batches bigger than this fraction of the diagram are cheaper to sweep again
+   private static final int REBUILD_FRACTION = 8;
+   // a move that needs more flips than this fraction of the sites is swept again
+   private static final int MAX_FLIP_FRACTION = 8;
+
+   private final int size_x;
+   private final int size_y;
+   private final Vector<Point> points;
+   // the last site inserted, walks start from there
+   private Point hint;
+   // picks the sites a walk may jump to first
+   private final Random rand = new Random(0);
+   // the sites a move changes: the moved ones, their neighbors and every site
+   // the repair touches. only their rings are scanned and their vertices placed
+   private final IdSet region = new IdSet();
+   // sites with no cell because another site is at the same spot. a sweep
+   // leaves those out, a move carves them in once the spot is free again
+   private final ArrayList<Point> stacked = new ArrayList<>();
+
+   // per edit scratch: which vertices and hull rays are in conflict with the new
+   // site, and the lines that touch them
+   private final IdentityHashMap<Coordinate, Boolean> vertexConflict = new IdentityHashMap<>();
+   private final IdentityHashMap<Line, Boolean> rayConflict = new IdentityHashMap<>();
+   private final IdentityHashMap<Line, Boolean> touched = new IdentityHashMap<>();
+   private final ArrayDeque<Line> pendingLines = new ArrayDeque<>();
+   private final ArrayDeque<Boolean> pendingSrc = new ArrayDeque<>();
+   private final ArrayList<Point> starSites = new ArrayList<>();
+   private final ArrayList<Line> starLines = new ArrayList<>();
+   // the zero length edges the last split made
+   private final ArrayList<Line> fanLines = new ArrayList<>();
+
+   DiagramEditor(int size_x, int size_y, Vector<Point> points) {
+      this.size_x = size_x;
+      this.size_y = size_y;
+      this.points = points;
+      findStacked();
+   }
+
+   /**
+    * Add q to the diagram and to its points vector
+    *
+    * @return false if there already is a site at q
+    */
+   boolean insert(Point q) {
+      if (points.size() < 3) {
+         return rebuildWith(q);
+      }
+      Point near = nearest(q, start(q));
+      if (near.getX() == q.getX() && near.getY() == q.getY()) {
+         return false;
+      }
+      if (!carve(q, near)) {
+         return rebuildWith(q);
+      }
+      append(q);
+      hint = q;
+      return true;
+   }
+
+   /**
+    * Add several sites. They are inserted in Z order so each walk starts near
+    * the site before; a batch that is big next to the diagram is swept again
+    * from scratch instead
+    *
+    * @return how many were added (duplicates aren't)
+    */
+   int insertAll(Collection<Point> sites) {
+      Point[] batch = sites.toArray(new Point[0]);
+      if (batch.length > points.size() / REBUILD_FRACTION) {
+         HashSet<Long> seen = new HashSet<>();
+         for (Point p : points) {
+            seen.add(PackedPointSource.pack((int) p.getX(), (int) p.getY()));
+         }
+         int added = 0;
+         for (Point p : batch) {
+            if (seen.add(PackedPointSource.pack((int) p.getX(), (int) p.getY()))) {
+               append(p);
+               added++;
+            }
+         }
+         rebuild();
+         return added;
+      }
+      int minX = Integer.MAX_VALUE, minY = Integer.MAX_VALUE;
+      for (Point p : batch) {
+         minX = Math.min(minX, (int) p.getX());
+         minY = Math.min(minY, (int) p.getY());
+      }
+      long[] keys = new long[batch.length];
+      for (int i = 0; i < batch.length; i++) {
+         keys[i] = mortonCode((int) batch[i].getX() - minX, (int) batch[i].getY() - minY);
+      }
+      Integer[] order = new Integer[batch.length];
+      for (int i = 0; i < order.length; i++) {
+         order[i] = i;
+      }
+      Arrays.sort(order, (i, j) -> Long.compare(keys[i], keys[j]));
+      int added = 0;
+      for (int i : order) {
+         if (insert(batch[i])) {
+            added++;
+         }
+      }
+      return added;
+   }
+
+   // bits of x and y interleaved
+   private static long mortonCode(int x, int y) {
+      return spread(x) | (spread(y) << 1);
+   }
+
+   private static long spread(int v) {
+      long x = v & 0xffffffffL;
+      x = (x | (x << 16)) & 0x0000ffff0000ffffL;
+      x = (x | (x << 8)) & 0x00ff00ff00ff00ffL;
+      x = (x | (x << 4)) & 0x0f0f0f0f0f0f0f0fL;
+      x = (x | (x << 2)) & 0x3333333333333333L;
+      x = (x | (x << 1)) & 0x5555555555555555L;
+      return x;
+   }
+
+   private boolean rebuildWith(Point q) {
+      for (Point p : points) {
+         if (p.getX() == q.getX() && p.getY() == q.getY()) {
+            return false;
+         }
+      }
+      append(q);
+      rebuild();
+      hint = q;
+      return true;
+   }
+
+   // a site's id is where it is in points
+   private void append(Point p) {
+      p.setId(points.size());
+      points.add(p);
+   }
+
+   /**
+    * Take site s out of the diagram and out of its points vector. The last
+    * site in the vector takes its place
+    *
+    * @return false if s isn't one of the sites
+    */
+   boolean delete(Point s) {
+      int at = s.getId();
+      if (at < 0 || at >= points.size() || points.get(at) != s) {
+         return false;
+      }
+      Point last = points.remove(points.size() - 1);
+      if (last != s) {
+         points.set(at, last);
+         last.setId(at);
+      }
+      if (hint == s) {
+         hint = null;
+      }
+      if (unstacked(s)) {
+         return true;
+      }
+      if (points.size() < 3 || !dig(s) || !unstack()) {
+         s.getLines().clear();
+         rebuild();
+      }
+      return true;
+   }
+
+   // sweep every site again
+   void rebuild() {
+      for (Point p : points) {
+         p.getLines().clear();
+      }
+      new FortuneDiagram(size_x, size_y, points);
+      findStacked();
+   }
+
+   private void findStacked() {
+      stacked.clear();
+      for (Point p : points) {
+         if (p.getLines().isEmpty() && points.size() > 1) {
+            stacked.add(p);
+         }
+      }
+   }
+
+   // take s off the stacked sites
+   private boolean unstacked(Point s) {
+      for (int i = 0; i < stacked.size(); i++) {
+         if (stacked.get(i) == s) {
+            stacked.set(i, stacked.get(stacked.size() - 1));
+            stacked.remove(stacked.size() - 1);
+            return true;
+         }
+      }
+      return false;
+   }
+
+   /**
+    * Carve in every stacked site whose spot is free again
+    *
+    * @return false if one couldn't be carved in
+    */
+   private boolean unstack() {
+      for (int i = stacked.size() - 1; i >= 0; i--) {
+         Point s = stacked.get(i);
+         Point near = nearest(s, start(s));
+         if (near.getX() != s.getX() || near.getY() != s.getY()) {
+            if (!carve(s, near)) {
+               return false;
+            }
+            // placed again if this is a move
+            touch(s);
+            unstacked(s);
+         }
+      }
+      return true;
+   }
+
+   /**
+    * Where to walk to q from: the last site inserted, or the nearest of about
+    * cbrt(n) random sites if one of those is nearer. Walks from there are about
+    * cbrt(n) steps too instead of sqrt(n) when the sites come in no order. Never
+    * q itself, which may be a site being moved, or a site with no cell
+    */
+   private Point start(Point q) {
+      Point best = hint;
+      for (int i = 0; best == null || best == q || best.getLines().isEmpty(); i++) {
+         best = points.get(i);
+      }
+      double d = dist2(best, q);
+      for (int i = (int) Math.cbrt(points.size()); i > 0; i--) {
+         Point p = points.get(rand.nextInt(points.size()));
+         double dp = dist2(p, q);
+         if (dp < d && p != q && !p.getLines().isEmpty()) {
+            best = p;
+            d = dp;
+         }
+      }
+      return best;
+   }
+
+   /**
+    * The site nearest to q, walking from start to whichever neighbor is nearer
+    * to q until none is. On a Voronoi diagram that always ends at the nearest
+    * site
+    */
+   Point nearest(Point q, Point start) {
+      Point p = start;
+      double best = dist2(p, q);
+      boolean moved = true;
+      while (moved) {
+         moved = false;
+         for (Line l : p.getLines()) {
+            Point o = other(l, p);
+            double d = dist2(o, q);
+            if (d < best) {
+               best = d;
+               p = o;
+               moved = true;
+               break;
+            }
+         }
+      }
+      return p;
+   }
+
+   /**
+    * Cut q's cell out of the diagram around near, the site nearest to it
+    *
+    * @return false if the diagram around near isn't something this can edit,
+    *         without having changed anything
+    */
+   private boolean carve(Point q, Point near) {
+      vertexConflict.clear();
+      rayConflict.clear();
+      touched.clear();
+      pendingLines.clear();
+      pendingSrc.clear();
+      for (Line l : near.getLines()) {
+         push(l, true);
+         push(l, false);
+      }
+      while (!pendingLines.isEmpty()) {
+         if (!visit(q, pendingLines.poll(), pendingSrc.poll())) {
+            return false;
+         }
+      }
+
+      // edges with one end in conflict are the rim of the hole
+      ArrayList<Line> rim = new ArrayList<>();
+      ArrayList<Line> gone = new ArrayList<>();
+      for (Line l : touched.keySet()) {
+         boolean src = inConflict(l, true);
+         boolean end = inConflict(l, false);
+         if (src && end) {
+            gone.add(l);
+         } else if (src || end) {
+            rim.add(l);
+         }
+      }
+      if (rim.size() < 2) {
+         return false;
+      }
+
+      // the sites around the hole, counter clockwise around q
+      ArrayList<Point> around = new ArrayList<>();
+      IdentityHashMap<Point, Boolean> seen = new IdentityHashMap<>();
+      for (Line l : rim) {
+         if (seen.put(l.getP0(), true) == null) {
+            around.add(l.getP0());
+         }
+         if (seen.put(l.getP1(), true) == null) {
+            around.add(l.getP1());
+         }
+      }
+      around.sort((a, b) -> Double.compare(angle(q, a), angle(q, b)));
+      int k = around.size();
+      // rimBetween[i]: the rim edge between around[i] and around[i + 1], null
+      // where q's cell opens onto the outside
+      Line[] rimBetween = new Line[k];
+      Coordinate[] vertex = new Coordinate[k];
+      int gaps = 0;
+      for (int i = 0; i < k; i++) {
+         Point a = around.get(i);
+         Point b = around.get((i + 1) % k);
+         for (Line l : rim) {
+            if (l.bisects(a) && l.bisects(b)) {
+               rimBetween[i] = l;
+            }
+         }
+         if (rimBetween[i] == null) {
+            gaps++;
+         } else {
+            vertex[i] = FortuneDiagram.circumcenter(q, a, b);
+         }
+      }
+      if (gaps > 1 || gaps + rim.size() != k) {
+         return false;
+      }
+      // where q and three sites in a row around it are on one circle the two
+      // vertices are the same one, and q gets no edge to the middle site
+      boolean[] merged = new boolean[k];
+      int first = -1;
+      for (int i = 0; i < k; i++) {
+         int prev = (i + k - 1) % k;
+         merged[i] = vertex[prev] != null && vertex[i] != null
+               && Predicates.inCircle(q, around.get(prev), around.get(i), around.get((i + 1) % k)) == 0;
+         if (!merged[i]) {
+            first = i;
+         }
+      }
+      if (first < 0) {
+         return false;
+      }
+      for (int step = 1; step < k; step++) {
+         int i = (first + step) % k;
+         if (merged[i]) {
+            vertex[i] = vertex[(i + k - 1) % k];
+         }
+      }
+
+      // nothing has changed so far. now edit: drop the edges inside the hole
+      for (Line l : gone) {
+         l.getP0().deleteLine(l);
+         l.getP1().deleteLine(l);
+      }
+      // move the conflicting end of each rim edge to its new vertex
+      for (int i = 0; i < k; i++) {
+         Line l = rimBetween[i];
+         if (l == null) {
+            continue;
+         }
+         if (inConflict(l, true)) {
+            Coordinate end = l.isEndBound() ? l.getEnd() : ray(l.getP0(), l.getP1(), vertex[i], q);
+            reshape(l, vertex[i], true, end, l.isEndBound());
+         } else {
+            Coordinate src = l.isSrcBound() ? l.getSrc() : ray(l.getP0(), l.getP1(), vertex[i], q);
+            reshape(l, src, l.isSrcBound(), vertex[i], true);
+         }
+      }
+      // and give q an edge to every site around the hole
+      for (int i = 0; i < k; i++) {
+         if (merged[i]) {
+            continue;
+         }
+         Point n = around.get(i);
+         int prev = (i + k - 1) % k;
+         Coordinate src = vertex[prev];
+         Coordinate end = vertex[i];
+         if (src == null) {
+            end = vertex[i];
+            src = ray(q, n, end, around.get((i + 1) % k));
+         } else if (end == null) {
+            end = ray(q, n, src, around.get(prev));
+         }
+         boolean qFirst = before(q, n);
+         Line line = new Line(src, vertex[prev] != null, end, vertex[i] != null, qFirst ? q : n, qFirst ? n : q);
+         q.insertLine(line);
+         n.insertLine(line);
+      }
+      return true;
+   }
+
+   /**
+    * Hand s's cell to its neighbors. They are a polygon around s, or a chain
+    * for a site on the hull, which is cut into Delaunay triangles an ear at a
+    * time: an ear is three neighbors in a row that turn left and have no other
+    * neighbor inside their circle. Every triangle is a new vertex, every cut a
+    * new edge, and the edges between neighbors in a row get their end at the
+    * vertex of the triangle on s's side, or a ray if there isn't one
+    *
+    * @return false if the rings around s aren't something this can edit,
+    *         without having changed anything
+    */
+   private boolean dig(Point s) {
+      Stack<Line> ring = s.getLines();
+      int k = ring.size();
+      if (k < 2) {
+         return false;
+      }
+      // s's neighbors counter clockwise, starting after the gap of a hull site
+      int first = 0;
+      boolean closed = k > 2;
+      for (int i = 0; i < k; i++) {
+         if (!sharesVertex(ring.get(i), ring.get((i + 1) % k))) {
+            if (!closed) {
+               return false;
+            }
+            first = i + 1;
+            closed = false;
+         }
+      }
+      if (k == 2 && Predicates.orient(s, other(ring.get(0), s), other(ring.get(1), s)) <= 0) {
+         first = 1;
+      }
+      Point[] n = new Point[k];
+      Line[] own = new Line[k];
+      for (int j = 0; j < k; j++) {
+         own[j] = ring.get((first + j) % k);
+         n[j] = other(own[j], s);
+      }
+      if (k == 2 && Predicates.orient(s, n[0], n[1]) <= 0) {
+         return false;
+      }
+
+      // side j runs from n[j] to n[j + 1] around the vertex corner[j]. if that
+      // vertex has more sites than s and those two, it stays and extra[j] is one
+      // of the others. if not, edge[j] is the edge between the two, and far[j]
+      // is the third site at its other end
+      int sides = closed ? k : k - 1;
+      Coordinate[] corner = new Coordinate[sides];
+      Line[] edge = new Line[sides];
+      Point[] extra = new Point[sides];
+      Point[] far = new Point[sides];
+      for (int j = 0; j < sides; j++) {
+         Point a = n[j], b = n[(j + 1) % k];
+         corner[j] = sharedVertex(own[j], own[(j + 1) % k]);
+         if (!star(own[j], corner[j])) {
+            return false;
+         }
+         for (int i = 0; i < starSites.size(); i++) {
+            Point p = starSites.get(i);
+            if (p != s && p != a && p != b) {
+               extra[j] = p;
+            }
+            if (starLines.get(i).bisects(a) && starLines.get(i).bisects(b)) {
+               edge[j] = starLines.get(i);
+            }
+         }
+         if (extra[j] != null) {
+            edge[j] = null;
+            continue;
+         }
+         if (edge[j] == null) {
+            return false;
+         }
+         Line e = edge[j];
+         boolean atSrc = e.isSrcBound() && e.getSrc() == corner[j];
+         if (atSrc ? e.isEndBound() : e.isSrcBound()) {
+            if (!star(e, atSrc ? e.getEnd() : e.getSrc())) {
+               return false;
+            }
+            for (Point p : starSites) {
+               if (p != a && p != b) {
+                  far[j] = p;
+               }
+            }
+         }
+      }
+
+      // clip ears. the chain edge starting at node i is edgeAt[i]: ids below
+      // sides are the sides, the rest are cuts. left[e] is the triangle on s's
+      // side of e, right[e] the ear that made cut e, apex[e] that ear's middle
+      int[] prev = new int[k];
+      int[] next = new int[k];
+      int[] edgeAt = new int[k];
+      for (int j = 0; j < k; j++) {
+         prev[j] = (closed || j > 0) ? (j + k - 1) % k : -1;
+         next[j] = (closed || j < k - 1) ? (j + 1) % k : -1;
+         edgeAt[j] = j;
+      }
+      int[] left = new int[sides + k];
+      int[] right = new int[sides + k];
+      int[] apex = new int[sides + k];
+      int[] cutFrom = new int[sides + k];
+      int[] cutTo = new int[sides + k];
+      Arrays.fill(left, -1);
+      Arrays.fill(right, -1);
+      int[][] tri = new int[k][];
+      int tris = 0, edges = sides, alive = k;
+      while (!closed || alive > 3) {
+         int ear = -1;
+         for (int j = 0; j < k && ear < 0; j++) {
+            if (prev[j] >= 0 && next[j] >= 0 && isEar(n, prev[j], j, next[j])) {
+               ear = j;
+            }
+         }
+         if (ear < 0) {
+            break;
+         }
+         int p = prev[ear], q = next[ear];
+         tri[tris] = new int[] { p, ear, q };
+         left[edgeAt[p]] = tris;
+         left[edgeAt[ear]] = tris;
+         right[edges] = tris;
+         apex[edges] = ear;
+         cutFrom[edges] = p;
+         cutTo[edges] = q;
+         edgeAt[p] = edges++;
+         tris++;
+         next[p] = q;
+         prev[q] = p;
+         prev[ear] = next[ear] = -1;
+         alive--;
+      }
+      if (closed) {
+         int a = 0;
+         while (next[a] < 0) {
+            a++;
+         }
+         int b = next[a], c = next[b];
+         if (alive != 3 || Predicates.orient(n[a], n[b], n[c]) <= 0) {
+            return false;
+         }
+         tri[tris] = new int[] { a, b, c };
+         left[edgeAt[a]] = left[edgeAt[b]] = left[edgeAt[c]] = tris++;
+      }
+
+      // triangles on one circle are one vertex: across a cut, with a corner
+      // that stays, or with the vertex at the far end of a side's edge
+      int[] group = new int[tris];
+      for (int t = 0; t < tris; t++) {
+         group[t] = t;
+      }
+      for (int e = sides; e < edges; e++) {
+         if (left[e] >= 0 && onCircle(n, tri[left[e]], n[apex[e]])) {
+            group[root(group, right[e])] = root(group, left[e]);
+         }
+      }
+      Coordinate[] vertex = new Coordinate[tris];
+      boolean[] drop = new boolean[sides];
+      for (int j = 0; j < sides; j++) {
+         int t = left[j];
+         if (t < 0) {
+            if (extra[j] == null && far[j] == null) {
+               // a side on the hull with no vertex to hang a ray on
+               return false;
+            }
+            continue;
+         }
+         Coordinate same = null;
+         if (extra[j] != null && onCircle(n, tri[t], extra[j])) {
+            same = corner[j];
+         } else if (far[j] != null && onCircle(n, tri[t], far[j])) {
+            same = farEnd(edge[j], corner[j]);
+            drop[j] = true;
+         }
+         if (same != null) {
+            int r = root(group, t);
+            if (vertex[r] != null && vertex[r] != same) {
+               return false;
+            }
+            vertex[r] = same;
+         }
+      }
+      for (int t = 0; t < tris; t++) {
+         int r = root(group, t);
+         if (vertex[r] == null) {
+            vertex[r] = FortuneDiagram.circumcenter(n[tri[t][0]], n[tri[t][1]], n[tri[t][2]]);
+         }
+         vertex[t] = vertex[r];
+      }
+
+      // nothing has changed so far. now edit: drop s's edges
+      for (Line l : ring) {
+         other(l, s).deleteLine(l);
+      }
+      ring.clear();
+      for (int j = 0; j < sides; j++) {
+         Point a = n[j], b = n[(j + 1) % k];
+         int t = left[j];
+         if (extra[j] != null) {
+            // the corner stays, and a and b get an edge from it unless the
+            // triangle on s's side is on its circle
+            if (t < 0) {
+               link(a, b, corner[j], true, ray(a, b, corner[j], extra[j]), false);
+            } else if (vertex[t] != corner[j]) {
+               link(a, b, corner[j], true, vertex[t], true);
+            }
+         } else if (drop[j]) {
+            a.deleteLine(edge[j]);
+            b.deleteLine(edge[j]);
+         } else {
+            Line e = edge[j];
+            Coordinate end = farEnd(e, corner[j]);
+            boolean endBound = far[j] != null;
+            Coordinate moved = (t >= 0) ? vertex[t] : ray(a, b, end, far[j]);
+            if (!endBound) {
+               end = ray(a, b, moved, n[apexOf(tri[t], j, (j + 1) % k)]);
+            }
+            boolean atSrc = e.isSrcBound() && e.getSrc() == corner[j];
+            if (atSrc) {
+               reshape(e, moved, t >= 0, end, endBound);
+            } else {
+               reshape(e, end, endBound, moved, t >= 0);
+            }
+         }
+      }
+      for (int e = sides; e < edges; e++) {
+         Point a = n[cutFrom[e]], b = n[cutTo[e]];
+         Coordinate v = vertex[right[e]];
+         if (left[e] < 0) {
+            // a cut left on the hull
+            link(a, b, v, true, ray(a, b, v, n[apex[e]]), false);
+         } else if (vertex[left[e]] != v) {
+            link(a, b, v, true, vertex[left[e]], true);
+         }
+      }
+      return true;
+   }
+
+   private boolean isEar(Point[] n, int p, int j, int q) {
+      if (Predicates.orient(n[p], n[j], n[q]) <= 0) {
+         return false;
+      }
+      for (int m = 0; m < n.length; m++) {
+         if (m != p && m != j && m != q && Predicates.inCircle(n[p], n[j], n[q], n[m]) > 0) {
+            return false;
+         }
+      }
+      return true;
+   }
+
+   private static boolean onCircle(Point[] n, int[] t, Point p) {
+      return Predicates.inCircle(n[t[0]], n[t[1]], n[t[2]], p) == 0;
+   }
+
+   // the corner of triangle t that isn't a or b
+   private static int apexOf(int[] t, int a, int b) {
+      return (t[0] != a && t[0] != b) ? t[0] : (t[1] != a && t[1] != b) ? t[1] : t[2];
+   }
+
+   private static int root(int[] group, int t) {
+      while (group[t] != t) {
+         t = group[t] = group[group[t]];
+      }
+      return t;
+   }
+
+   // the end of e that isn't v
+   private static Coordinate farEnd(Line e, Coordinate v) {
+      return (e.isSrcBound() && e.getSrc() == v) ? e.getEnd() : e.getSrc();
+   }
+
+   // a new edge between a and b
+   private static Line link(Point a, Point b, Coordinate src, boolean srcBound, Coordinate end, boolean endBound) {
+      boolean aFirst = before(a, b);
+      Line line = new Line(src, srcBound, end, endBound, aFirst ? a : b, aFirst ? b : a);
+      a.insertLine(line);
+      b.insertLine(line);
+      return line;
+   }
+
+   /**
+    * Move every site to (x[i], y[i]), i its index in points, rounded down like
+    * Point's constructor, and repair the diagram around the new positions.
+    *
+    * The edges are kept and only fixed where the neighbors changed. Vertices
+    * of the moved sites with more than three sites are split into triangles
+    * first. The sites of a triangle that turned over are held back where they
+    * were, then a hull site that turned in gets a triangle over it, every edge
+    * whose two triangles fail the in-circle test is flipped until none does,
+    * triangles that ended up on one circle are merged again, and the held back
+    * sites are deleted and inserted at their new place. A site that lands on
+    * another has no cell until it moves off again. More than n /
+    * MAX_FLIP_FRACTION flips or held back sites and the sites moved too far
+    * for that: they are swept again instead. Only the cells of the moved sites
+    * and of the sites the repair touched are scanned and placed again, so past
+    * reading the positions a move costs what changed around the moved sites
+    *
+    * @return false if the diagram was swept again
+    */
+   boolean move(double[] x, double[] y) {
+      if (x.length != points.size() || y.length != points.size()) {
+         throw new IllegalArgumentException(x.length + " and " + y.length + " positions for " + points.size() + " sites");
+      }
+      ArrayList<Point> moving = new ArrayList<>();
+      for (int i = 0; i < x.length; i++) {
+         Coordinate c = points.get(i).getCoordinate();
+         if (c.x != (int) x[i] || c.y != (int) y[i]) {
+            moving.add(points.get(i));
+         }
+      }
+      if (moving.isEmpty()) {
+         return true;
+      }
+      // split while the rings are still in order for the old positions
+      region.clear();
+      boolean local = points.size() > 3;
+      for (int i = 0; local && i < moving.size(); i++) {
+         local = splitAround(moving.get(i));
+      }
+      // where the moved sites were
+      IdentityHashMap<Point, Coordinate> from = new IdentityHashMap<>();
+      for (Point p : moving) {
+         Coordinate c = p.getCoordinate();
+         from.put(p, new Coordinate(c));
+         c.x = (int) x[p.getId()];
+         c.y = (int) y[p.getId()];
+      }
+      if (!local || !repair(from)) {
+         // sites held back may still be where they were
+         for (int i = 0; i < x.length; i++) {
+            Coordinate c = points.get(i).getCoordinate();
+            c.x = (int) x[i];
+            c.y = (int) y[i];
+         }
+         rebuild();
+         return false;
+      }
+      return true;
+   }
+
+   // make every vertex of p's cell a triangle, see split
+   private boolean splitAround(Point p) {
+      Stack<Line> ring = p.getLines();
+      int k = ring.size();
+      ArrayList<Line> at = new ArrayList<>();
+      ArrayList<Coordinate> split = new ArrayList<>();
+      for (int i = 0; i < k; i++) {
+         Line l = ring.get(i);
+         if (!l.isSrcBound() && !l.isEndBound()) {
+            return false;
+         }
+         Line m = ring.get((i + 1) % k);
+         Coordinate v = (k > 1) ? sharedVertex(l, m) : null;
+         if (v != null && !isTriangle(p, l, m, v)) {
+            at.add(l);
+            split.add(v);
+         }
+      }
+      for (int i = 0; i < at.size(); i++) {
+         if (!split(at.get(i), split.get(i))) {
+            return false;
+         }
+      }
+      return true;
+   }
+
+   // make vertex v, one of l's ends, a triangle: a vertex with more sites around
+   // it becomes a fan of triangles joined by zero length edges (into fanLines),
+   // which repair flips or merges. its sites join the region
+   private boolean split(Line l, Coordinate v) {
+      fanLines.clear();
+      if (!star(l, v)) {
+         return false;
+      }
+      // starLines[i] runs between starSites[i] and starSites[i + 1]. the fan
+      // is the triangles (s0, sj, sj+1)
+      int m = starSites.size();
+      Line[] around = starLines.toArray(new Line[m]);
+      Point[] sites = starSites.toArray(new Point[m]);
+      for (Point s : sites) {
+         region.add(s.getId());
+      }
+      Coordinate[] fan = new Coordinate[m - 1];
+      fan[1] = v;
+      for (int j = 2; j < m - 1; j++) {
+         fan[j] = new Coordinate(v);
+      }
+      for (int i = 1; i < m - 1; i++) {
+         replaceEnd(around[i], v, fan[i]);
+      }
+      replaceEnd(around[m - 1], v, fan[m - 2]);
+      for (int j = 2; j < m - 1; j++) {
+         fanLines.add(link(sites[0], sites[j], fan[j - 1], true, fan[j], true));
+      }
+      return true;
+   }
+
+   // whether the corner of p between l and m at v is a triangle, the third
+   // edge running between l's and m's other sites
+   private static boolean isTriangle(Point p, Line l, Line m, Coordinate v) {
+      Point b = other(m, p);
+      for (Line e : other(l, p).getLines()) {
+         if (e.bisects(b)) {
+            return shares(e, v);
+         }
+      }
+      return false;
+   }
+
+   // add p and its neighbors to the region
+   private void touch(Point p) {
+      region.add(p.getId());
+      for (Line l : p.getLines()) {
+         region.add(other(l, p).getId());
+      }
+   }
+
+   private boolean repair(IdentityHashMap<Point, Coordinate> from) {
+      for (Point p : from.keySet()) {
+         touch(p);
+      }
+      // sites of triangles that turned over go back where they were for now, and
+      // are moved by deleting and inserting them once the rest is repaired. a
+      // turned triangle has a site away from where it was
+      ArrayList<Point> held = new ArrayList<>();
+      ArrayList<Coordinate> target = new ArrayList<>();
+      boolean turned = true;
+      while (turned) {
+         turned = false;
+         for (Point p : from.keySet()) {
+            if (p.getCoordinate().equals2D(from.get(p))) {
+               continue;
+            }
+            Stack<Line> ring = p.getLines();
+            int k = ring.size();
+            for (int i = 0; k > 2 && i < k; i++) {
+               Line l = ring.get(i);
+               Line m = ring.get((i + 1) % k);
+               Point b = other(l, p), c = other(m, p);
+               if (sharedVertex(l, m) == null || Predicates.orient(p, b, c) > 0) {
+                  continue;
+               }
+               for (Point q : new Point[] { p, b, c }) {
+                  Coordinate was = from.get(q);
+                  Coordinate now = q.getCoordinate();
+                  if (was != null && !now.equals2D(was)) {
+                     held.add(q);
+                     target.add(new Coordinate(now));
+                     now.x = was.x;
+                     now.y = was.y;
+                  }
+               }
+               turned = true;
+            }
+         }
+         if (held.size() > points.size() / MAX_FLIP_FRACTION) {
+            return false;
+         }
+      }
+      for (int i = 0; i < region.size(); i++) {
+         points.get(region.get(i)).sortLines();
+      }
+      fillHull();
+
+      // flip until every edge passes the in-circle test. the rings are in order
+      // again, so the sites on either side of an edge are its ring neighbors
+      // and only the edges that fail go in the queue. an edge neither of whose
+      // triangles has a site in the region hasn't changed
+      ArrayDeque<Line> queue = new ArrayDeque<>();
+      IdentityHashMap<Line, Boolean> queued = touched;
+      queued.clear();
+      // edges whose two triangles are on one circle, for merging after
+      IdentityHashMap<Line, Boolean> cocircular = new IdentityHashMap<>();
+      for (int r = 0, scanned = region.size(); r < scanned; r++) {
+         Point p = points.get(region.get(r));
+         Stack<Line> ring = p.getLines();
+         int k = ring.size();
+         for (int i = 0; i < k; i++) {
+            Line l = ring.get(i);
+            if (!l.isSrcBound() || !l.isEndBound() || queued.containsKey(l) || cocircular.containsKey(l)) {
+               continue;
+            }
+            Point c = other(ring.get((i + 1) % k), p);
+            Point d = other(ring.get((i + k - 1) % k), p);
+            int in = Predicates.inCircle(p, other(l, p), c, d);
+            if (in > 0) {
+               queue.add(l);
+               queued.put(l, false);
+            } else if (in == 0) {
+               cocircular.put(l, true);
+            }
+         }
+      }
+      int flips = 0;
+      while (!queue.isEmpty()) {
+         Line l = queue.poll();
+         queued.remove(l);
+         if (l.getP0().indexOf(l) < 0) {
+            // merged away with a fan
+            continue;
+         }
+         // a flip can reach a vertex no move split, whose sites all stayed put
+         for (Coordinate v : new Coordinate[] { l.getSrc(), l.getEnd() }) {
+            if (!star(l, v)) {
+               return false;
+            }
+            if (starSites.size() > 3) {
+               if (!split(l, v)) {
+                  return false;
+               }
+               for (Line e : fanLines) {
+                  queued.put(e, false);
+                  queue.add(e);
+               }
+            }
+         }
+         Point a = l.getP0(), b = l.getP1();
+         Point c = thirdSite(a, l, l.getSrc());
+         Point d = thirdSite(a, l, l.getEnd());
+         if (c == null || d == null) {
+            return false;
+         }
+         if (Predicates.orient(a, b, c) < 0) {
+            Point t = a;
+            a = b;
+            b = t;
+         }
+         if (Predicates.orient(a, b, c) <= 0 || Predicates.orient(a, b, d) >= 0) {
+            return false;
+         }
+         int in = Predicates.inCircle(a, b, c, d);
+         if (in < 0) {
+            cocircular.remove(l);
+            continue;
+         }
+         if (in == 0) {
+            cocircular.put(l, true);
+            continue;
+         }
+         if (Predicates.orient(c, a, d) <= 0 || Predicates.orient(d, b, c) <= 0
+               || ++flips > points.size() / MAX_FLIP_FRACTION) {
+            return false;
+         }
+         cocircular.remove(l);
+         for (Point q : new Point[] { a, b, c, d }) {
+            region.add(q.getId());
+         }
+         for (Line e : flip(l, a, b, c, d)) {
+            if (e.isSrcBound() && e.isEndBound() && queued.put(e, false) == null) {
+               queue.add(e);
+            }
+         }
+      }
+      if (!cocircular.isEmpty()) {
+         merge(cocircular.keySet());
+      }
+      for (int i = 0; i < held.size(); i++) {
+         if (!relocate(held.get(i), target.get(i))) {
+            return false;
+         }
+      }
+      if (!unstack()) {
+         return false;
+      }
+      place();
+      return true;
+   }
+
+   // move site s to c by cutting its cell out and carving it in again, leaving
+   // it where it is in points. a site that lands on another is stacked
+   private boolean relocate(Point s, Coordinate c) {
+      touch(s);
+      if (!dig(s)) {
+         return false;
+      }
+      if (hint == s) {
+         hint = null;
+      }
+      s.getCoordinate().x = c.x;
+      s.getCoordinate().y = c.y;
+      Point near = nearest(s, start(s));
+      if (near.getX() == s.getX() && near.getY() == s.getY()) {
+         stacked.add(s);
+         return true;
+      }
+      if (!carve(s, near)) {
+         return false;
+      }
+      touch(s);
+      return true;
+   }
+
+   // give every site of the region on the hull that turned in a triangle over
+   // it. a hull edge goes in from whichever of its sites is in the region
+   private void fillHull() {
+      ArrayDeque<Line> hull = new ArrayDeque<>();
+      for (int i = 0; i < region.size(); i++) {
+         Point p = points.get(region.get(i));
+         for (Line l : p.getLines()) {
+            if (l.isSrcBound() != l.isEndBound()) {
+               hull.add(l);
+            }
+         }
+      }
+      while (!hull.isEmpty()) {
+         Line h = hull.poll();
+         if (h.isSrcBound() == h.isEndBound() || h.getP0().indexOf(h) < 0) {
+            continue;
+         }
+         // a to b with the inside on the left, then b to c
+         Point a = h.getP0(), b = h.getP1();
+         if (Predicates.orient(a, b, thirdSite(a, h, bound(h))) < 0) {
+            a = h.getP1();
+            b = h.getP0();
+         }
+         Line next = hullNeighbor(b, h);
+         if (next == null) {
+            continue;
+         }
+         Point c = other(next, b);
+         if (Predicates.orient(a, b, c) >= 0) {
+            continue;
+         }
+         for (Point q : new Point[] { a, b, c }) {
+            region.add(q.getId());
+         }
+         Coordinate w = new Coordinate();
+         replaceEnd(h, null, w);
+         replaceEnd(next, null, w);
+         Line lid = link(a, c, w, true, new Coordinate(), false);
+         hull.add(lid);
+         Line before = hullNeighbor(a, lid);
+         if (before != null) {
+            hull.add(before);
+         }
+      }
+   }
+
+   /**
+    * Flip edge l between a and b, with c on the left of a to b and d on the
+    * right, to the edge between c and d. The vertex of a, b, c becomes the one
+    * of c, a, d and the vertex of b, a, d the one of d, b, c
+    *
+    * @return the four edges around the flipped one
+    */
+   private Line[] flip(Line l, Point a, Point b, Point c, Point d) {
+      Coordinate v1 = thirdSite(a, l, l.getSrc()) == c ? l.getSrc() : l.getEnd();
+      Coordinate v2 = (v1 == l.getSrc()) ? l.getEnd() : l.getSrc();
+      Line ac = edgeAt(a, c, v1), bc = edgeAt(b, c, v1);
+      Line ad = edgeAt(a, d, v2), bd = edgeAt(b, d, v2);
+      a.deleteLine(l);
+      b.deleteLine(l);
+      replaceEnd(ad, v2, v1);
+      replaceEnd(bc, v1, v2);
+      link(c, d, v1, true, v2, true);
+      return new Line[] { ac, bc, ad, bd };
+   }
+
+   // merge the vertices at either end of each of these edges and drop the edges.
+   // every other edge at those vertices belongs to a neighbor of their sites
+   private void merge(Collection<Line> zero) {
+      IdentityHashMap<Coordinate, Coordinate> parent = new IdentityHashMap<>();
+      for (Line l : zero) {
+         touch(l.getP0());
+         touch(l.getP1());
+      }
+      for (Line l : zero) {
+         Coordinate s = find(parent, l.getSrc()), e = find(parent, l.getEnd());
+         if (s != e) {
+            parent.put(e, s);
+         }
+         l.getP0().deleteLine(l);
+         l.getP1().deleteLine(l);
+      }
+      for (int i = 0; i < region.size(); i++) {
+         Point p = points.get(region.get(i));
+         for (Line l : p.getLines()) {
+            if (l.getP0() == p || !region.contains(l.getP0().getId())) {
+               l.setEnds(l.isSrcBound() ? find(parent, l.getSrc()) : l.getSrc(), l.isSrcBound(),
+                     l.isEndBound() ? find(parent, l.getEnd()) : l.getEnd(), l.isEndBound());
+            }
+         }
+      }
+   }
+
+   private static Coordinate find(IdentityHashMap<Coordinate, Coordinate> parent, Coordinate v) {
+      Coordinate up;
+      while ((up = parent.get(v)) != null) {
+         v = up;
+      }
+      return v;
+   }
+
+   // put every vertex of the region's cells on its sites' new circle and every
+   // ray out from them, and the sites of every edge back in x and then y order
+   private void place() {
+      for (int r = 0; r < region.size(); r++) {
+         Point p = points.get(region.get(r));
+         Stack<Line> ring = p.getLines();
+         int k = ring.size();
+         for (int i = 0; k > 1 && i < k; i++) {
+            Line l = ring.get(i);
+            Line m = ring.get((i + 1) % k);
+            Point b = other(l, p), c = other(m, p);
+            Coordinate v = sharedVertex(l, m);
+            if (v == null) {
+               continue;
+            }
+            // from its lowest id site, so every site of a vertex puts it in the
+            // same spot
+            Coordinate o = (p.getId() < b.getId() && p.getId() < c.getId()) ? FortuneDiagram.circumcenter(p, b, c)
+                  : (b.getId() < c.getId()) ? FortuneDiagram.circumcenter(b, c, p)
+                        : FortuneDiagram.circumcenter(c, p, b);
+            v.x = o.x;
+            v.y = o.y;
+         }
+      }
+      for (int r = 0; r < region.size(); r++) {
+         Point p = points.get(region.get(r));
+         for (Line l : p.getLines()) {
+            if (l.getP0() != p && region.contains(l.getP0().getId())) {
+               continue;
+            }
+            if (l.isSrcBound() != l.isEndBound()) {
+               Coordinate v = bound(l);
+               Coordinate far = ray(l.getP0(), l.getP1(), v, thirdSite(l.getP0(), l, v));
+               if (l.isSrcBound()) {
+                  l.setEnds(v, true, far, false);
+               } else {
+                  l.setEnds(far, false, v, true);
+               }
+            }
+            l.orderSites();
+         }
+      }
+   }
+
+   private static Coordinate bound(Line l) {
+      return l.isSrcBound() ? l.getSrc() : l.getEnd();
+   }
+
+   // the site at vertex v of edge l other than p and l's other site, going
+   // through p's ring
+   private static Point thirdSite(Point p, Line l, Coordinate v) {
+      for (Line m : p.getLines()) {
+         if (m != l && shares(m, v)) {
+            return other(m, p);
+         }
+      }
+      return null;
+   }
+
+   // p's edge to q that ends at v
+   private static Line edgeAt(Point p, Point q, Coordinate v) {
+      for (Line m : p.getLines()) {
+         if (m.bisects(q) && shares(m, v)) {
+            return m;
+         }
+      }
+      return null;
+   }
+
+   // swap end v of l for w. a null v is l's unbounded end, a null w makes that
+   // end unbounded (placed by the caller later)
+   private static void replaceEnd(Line l, Coordinate v, Coordinate w) {
+      boolean atSrc = (v == null) ? !l.isSrcBound() : l.isSrcBound() && l.getSrc() == v;
+      Coordinate now = (w == null) ? new Coordinate() : w;
+      if (atSrc) {
+         l.setEnds(now, w != null, l.getEnd(), l.isEndBound());
+      } else {
+         l.setEnds(l.getSrc(), l.isSrcBound(), now, w != null);
+      }
+   }
+
+   private void push(Line l, boolean src) {
+      pendingLines.add(l);
+      pendingSrc.add(src);
+   }
+
+   // test one end of l against q, and go on to its neighbors if it's in conflict
+   private boolean visit(Point q, Line l, boolean src) {
+      boolean bound = src ? l.isSrcBound() : l.isEndBound();
+      if (bound) {
+         Coordinate v = src ? l.getSrc() : l.getEnd();
+         if (vertexConflict.containsKey(v)) {
+            return true;
+         }
+         if (!star(l, v)) {
+            return false;
+         }
+         // on the circle counts too: v then gets q as one more site
+         boolean conflict = Predicates.inCircle(starSites.get(0), starSites.get(1), starSites.get(2), q) >= 0;
+         vertexConflict.put(v, conflict);
+         if (conflict) {
+            for (Line m : starLines) {
+               touched.put(m, true);
+               // the end of m that isn't v
+               push(m, m.getSrc() != v);
+            }
+         }
+         return true;
+      }
+
+      if (rayConflict.containsKey(l)) {
+         return true;
+      }
+      boolean otherBound = src ? l.isEndBound() : l.isSrcBound();
+      if (!otherBound) {
+         // an edge with no vertex at all, only in diagrams of collinear sites
+         return false;
+      }
+      Coordinate v = src ? l.getEnd() : l.getSrc();
+      if (!star(l, v)) {
+         return false;
+      }
+      Point a = l.getP0(), b = l.getP1();
+      Point inside = null;
+      for (Point s : starSites) {
+         if (s != a && s != b) {
+            inside = s;
+         }
+      }
+      // the hull edge a - b is in conflict if q is on its outer side, or on it
+      // between a and b
+      int side = Predicates.orient(a, b, q);
+      boolean conflict = (side != 0) ? side != Predicates.orient(a, b, inside)
+            : Predicates.onSegment(a, b, q) && !q.getCoordinate().equals2D(a.getCoordinate())
+                  && !q.getCoordinate().equals2D(b.getCoordinate());
+      rayConflict.put(l, conflict);
+      if (conflict) {
+         touched.put(l, true);
+         push(l, !src);
+         // the rays of the hull edges on either side
+         for (Point s : new Point[] { a, b }) {
+            Line m = hullNeighbor(s, l);
+            if (m == null) {
+               return false;
+            }
+            push(m, !m.isSrcBound());
+         }
+      }
+      return true;
+   }
+
+   private boolean inConflict(Line l, boolean src) {
+      boolean bound = src ? l.isSrcBound() : l.isEndBound();
+      if (bound) {
+         return vertexConflict.get(src ? l.getSrc() : l.getEnd()) == Boolean.TRUE;
+      }
+      return rayConflict.get(l) == Boolean.TRUE;
+   }
+
+   /**
+    * The sites and lines around vertex v, one of l's ends, into starSites and
+    * starLines (counter clockwise)
+    *
+    * @return false if the rings don't close around v
+    */
+   private boolean star(Line l, Coordinate v) {
+      starSites.clear();
+      starLines.clear();
+      Point s = l.getP0();
+      Stack<Line> ring = s.getLines();
+      int n = ring.size();
+      int i = s.indexOf(l);
+      if (i < 0 || n < 2) {
+         return false;
+      }
+      // v is between ring[j] and ring[j + 1]
+      int j = (shares(ring.get((i + n - 1) % n), v)) ? (i + n - 1) % n : i;
+      Point p = s;
+      do {
+         ring = p.getLines();
+         n = ring.size();
+         Line next = ring.get((j + 1) % n);
+         if (!shares(next, v) || starSites.size() == MAX_STAR) {
+            return false;
+         }
+         starSites.add(p);
+         starLines.add(next);
+         p = other(next, p);
+         j = p.indexOf(next);
+         if (j < 0) {
+            return false;
+         }
+      } while (p != s);
+      return starSites.size() >= 3;
+   }
+
+   // the other hull edge of hull site s, next to l across the gap in its ring
+   private static Line hullNeighbor(Point s, Line l) {
+      Stack<Line> ring = s.getLines();
+      int n = ring.size();
+      int i = s.indexOf(l);
+      if (i < 0 || n < 2) {
+         return null;
+      }
+      Line prev = ring.get((i + n - 1) % n);
+      Line next = ring.get((i + 1) % n);
+      Line m = (n == 2 || !sharesVertex(l, prev)) ? prev : next;
+      return (m.isSrcBound() && m.isEndBound()) ? null : m;
+   }
+
+   private static boolean shares(Line l, Coordinate v) {
+      return l.isSrcBound() && l.getSrc() == v || l.isEndBound() && l.getEnd() == v;
+   }
+
+   private static boolean sharesVertex(Line a, Line b) {
+      return sharedVertex(a, b) != null;
+   }
+
+   private static Coordinate sharedVertex(Line a, Line b) {
+      if (a.isSrcBound() && shares(b, a.getSrc())) {
+         return a.getSrc();
+      }
+      return (a.isEndBound() && shares(b, a.getEnd())) ? a.getEnd() : null;
+   }
+
+   /**
+    * The far end of the edge between a and b that runs from vertex away from
+    * the vertex's third site c
+    */
+   private Coordinate ray(Point a, Point b, Coordinate vertex, Point c) {
+      double dx = -(b.getY() - a.getY());
+      double dy = b.getX() - a.getX();
+      if (dx * (a.getX() - c.getX()) + dy * (a.getY() - c.getY()) < 0) {
+         dx = -dx;
+         dy = -dy;
+      }
+      boolean aFirst = before(a, b);
+      return VoronoiDiagram.rayEnd(size_x, size_y, aFirst ? a : b, aFirst ? b : a, vertex, dx, dy);
+   }
+
+   // move l's ends. its place in its sites' rings only depends on the sites, so
+   // it stays where it is
+   private static void reshape(Line l, Coordinate src, boolean srcBound, Coordinate end, boolean endBound) {
+      l.setEnds(src, srcBound, end, endBound);
+   }
+
+   private static double angle(Point from, Point to) {
+      return Point.pseudoAngle(to.getX() - from.getX(), to.getY() - from.getY());
+   }
+
+   // the order VoronoiDiagram gives a bisector's two sites in: x and then y
+   static boolean before(Point a, Point b) {
+      return a.getX() < b.getX() || a.getX() == b.getX() && a.getY() < b.getY();
+   }
+
+   static Point other(Line l, Point p) {
+      return (l.getP0() == p) ? l.getP1() : l.getP0();
+   }
+
+   private static double dist2(Point a, Point b) {
+      double dx = a.getX() - b.getX();
+      double dy = a.getY() - b.getY();
+      return dx * dx + dy * dy;
+   }
+}
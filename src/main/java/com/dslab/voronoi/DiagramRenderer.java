@@ -0,0 +1,122 @@
+package com.dslab.voronoi;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.Arrays;
+
+/**
+ * Draws the part of an EdgeIndex that falls in a viewport into an image. A
+ * world point (x, y) lands on pixel (x * scale + originX, y * scale + originY),
+ * the same mapping VoronoiGraphics has always used.
+ *
+ * When more edges are visible than can sensibly be drawn as lines (zoomed far
+ * out on a big diagram), it falls back to a density image instead: the middle
+ * of every visible edge adds to its pixel and the counts are shaded on a log
+ * scale. That is a single pass over plain arrays, so it stays fast at millions
+ * of edges.
+ *
+ * Needs no display, so it works off the event dispatch thread and in headless
+ * runs. One renderer draws one image at a time.
+ */
+public class DiagramRenderer {
+   static final Color bgColor = new Color(0, 0, 0);
+   static final Color ptColor = new Color(255, 255, 255);
+   static final Color lnColor = new Color(190, 255, 128);
+
+   // draw lines while fewer than this many edges per pixel are visible
+   static final double LINES_PER_PIXEL = 0.25;
+
+   private int[] density = new int[0];
+
+   /**
+    * Image the renderer can draw into, TYPE_INT_RGB so density mode can write
+    * its pixels directly
+    */
+   public static BufferedImage newImage(int width, int height) {
+      return new BufferedImage(Math.max(width, 1), Math.max(height, 1), BufferedImage.TYPE_INT_RGB);
+   }
+
+   public void draw(EdgeIndex index, BufferedImage img, double originX, double originY, double scale) {
+      draw(new EdgeIndex[] { index }, img, originX, originY, scale);
+   }
+
+   /**
+    * Draw several indexes into one image, e.g. the pieces of a diagram that is
+    * still being built. The level of detail is picked for all of them together
+    */
+   public void draw(EdgeIndex[] pieces, BufferedImage img, double originX, double originY, double scale) {
+      int w = img.getWidth();
+      int h = img.getHeight();
+      // the world box that is on screen
+      double minX = -originX / scale, maxX = (w - originX) / scale;
+      double minY = -originY / scale, maxY = (h - originY) / scale;
+
+      Graphics2D g = img.createGraphics();
+      try {
+         g.setColor(bgColor);
+         g.fillRect(0, 0, w, h);
+         long visible = 0;
+         for (EdgeIndex index : pieces) {
+            visible += index.estimate(minX, minY, maxX, maxY);
+         }
+         if (visible > LINES_PER_PIXEL * w * h) {
+            drawDensity(pieces, img, originX, originY, scale, minX, minY, maxX, maxY);
+            return;
+         }
+
+         for (EdgeIndex index : pieces) {
+            g.setColor(lnColor);
+            index.query(minX, minY, maxX, maxY, e -> g.drawLine(
+                  (int) (index.x0(e) * scale + originX), (int) (index.y0(e) * scale + originY),
+                  (int) (index.x1(e) * scale + originX), (int) (index.y1(e) * scale + originY)));
+
+            g.setColor(ptColor);
+            for (int s = index.firstSiteAtOrAfter(minX); s < index.siteCount() && index.siteX(s) <= maxX; s++) {
+               float y = index.siteY(s);
+               if (y >= minY && y <= maxY) {
+                  g.drawOval((int) (index.siteX(s) * scale + originX), (int) (y * scale + originY), 1, 1);
+               }
+            }
+         }
+      } finally {
+         g.dispose();
+      }
+   }
+
+   private void drawDensity(EdgeIndex[] pieces, BufferedImage img, double originX, double originY, double scale,
+         double minX, double minY, double maxX, double maxY) {
+      int w = img.getWidth();
+      int h = img.getHeight();
+      if (density.length < w * h) {
+         density = new int[w * h];
+      }
+      int[] counts = density;
+      Arrays.fill(counts, 0, w * h, 0);
+      int[] max = { 0 };
+      for (EdgeIndex index : pieces) {
+         index.query(minX, minY, maxX, maxY, e -> {
+            int px = (int) ((index.x0(e) + index.x1(e)) * 0.5f * scale + originX);
+            int py = (int) ((index.y0(e) + index.y1(e)) * 0.5f * scale + originY);
+            if (px >= 0 && px < w && py >= 0 && py < h) {
+               int c = ++counts[py * w + px];
+               if (c > max[0]) {
+                  max[0] = c;
+               }
+            }
+         });
+      }
+
+      int[] pixels = ((DataBufferInt) img.getRaster().getDataBuffer()).getData();
+      double norm = 1 / Math.log1p(Math.max(max[0], 1));
+      int r = lnColor.getRed(), gr = lnColor.getGreen(), b = lnColor.getBlue();
+      for (int i = 0; i < w * h; i++) {
+         if (counts[i] != 0) {
+            // at least a third of full brightness so lone edges stay visible
+            double t = (1 + 2 * Math.log1p(counts[i]) * norm) / 3;
+            pixels[i] = ((int) (r * t) << 16) | ((int) (gr * t) << 8) | (int) (b * t);
+         }
+      }
+   }
+}
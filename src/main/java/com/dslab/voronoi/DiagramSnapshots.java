@@ -0,0 +1,148 @@
+package com.dslab.voronoi;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Vector;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Finished parts of a diagram that is still being built, published for a
+ * viewer without any locking.
+ *
+ * When the builder finishes a subtree of the divide, the edges of that subtree
+ * will not change until its parent's stitch, which runs on the same thread (or
+ * after a join). That is the moment it can copy them into an immutable
+ * EdgeIndex. The published pieces cover disjoint ranges of the sites and a new
+ * piece replaces the pieces of its own children, so the set only ever gets
+ * coarser, ending with one piece for the whole diagram. Readers take the
+ * current array of pieces and never see it change; publishers swap in a new
+ * array with a compare and set.
+ *
+ * Copying a subtree costs the builder time, so only subtrees of at least
+ * minSites are taken, no more often than every interval, and never more than
+ * about a fifth of the build's time.
+ */
+public class DiagramSnapshots {
+   public static final int DEFAULT_MIN_SITES = 1024;
+   public static final long DEFAULT_INTERVAL_MS = 250;
+
+   /**
+    * The edges of the sites points[lower .. upper] as they were when their
+    * subtree was finished
+    */
+   public static class Piece {
+      private final int lower;
+      private final int upper;
+      private final EdgeIndex edges;
+
+      Piece(int lower, int upper, EdgeIndex edges) {
+         this.lower = lower;
+         this.upper = upper;
+         this.edges = edges;
+      }
+
+      public int getLower() {
+         return lower;
+      }
+
+      public int getUpper() {
+         return upper;
+      }
+
+      public EdgeIndex getEdges() {
+         return edges;
+      }
+   }
+
+   private final int minSites;
+   private final long intervalNanos;
+
+   // sorted by lower, never changed once published
+   private final AtomicReference<Piece[]> pieces = new AtomicReference<>(new Piece[0]);
+   // System.nanoTime() after which the next subtree may be taken
+   private final AtomicLong nextPublish = new AtomicLong(System.nanoTime());
+   private volatile Runnable listener;
+
+   public DiagramSnapshots() {
+      this(DEFAULT_MIN_SITES, DEFAULT_INTERVAL_MS);
+   }
+
+   public DiagramSnapshots(int minSites, long intervalMs) {
+      this.minSites = minSites;
+      this.intervalNanos = intervalMs * 1000000;
+   }
+
+   /**
+    * Run after every publish, on the publishing (builder) thread, so it should
+    * only hand off work, e.g. ask a viewer for a new frame
+    */
+   public void onPublish(Runnable listener) {
+      this.listener = listener;
+   }
+
+   // the published pieces. the array is never changed, so it can be read freely
+   public Piece[] current() {
+      return pieces.get();
+   }
+
+   // true once one piece covers all sites of the diagram
+   public boolean complete(int sites) {
+      Piece[] now = pieces.get();
+      return now.length == 1 && now[0].lower == 0 && now[0].upper == sites - 1;
+   }
+
+   /**
+    * Called by the builder when the subtree points[lower .. upper] is finished.
+    * Takes a snapshot if the subtree is big enough and it is time for one
+    */
+   void subtreeDone(Vector<Point> points, int lower, int upper) {
+      if (upper - lower + 1 < minSites) {
+         return;
+      }
+      long now = System.nanoTime();
+      long next = nextPublish.get();
+      if (now < next || !nextPublish.compareAndSet(next, Long.MAX_VALUE)) {
+         return;
+      }
+      try {
+         publish(points, lower, upper);
+      } finally {
+         long cost = System.nanoTime() - now;
+         nextPublish.set(System.nanoTime() + Math.max(intervalNanos, 4 * cost));
+      }
+   }
+
+   /**
+    * Take a snapshot of points[lower .. upper] whatever its size. The builder
+    * calls this for the whole diagram once it is done
+    */
+   void publish(Vector<Point> points, int lower, int upper) {
+      Piece piece = new Piece(lower, upper, EdgeIndex.build(points, lower, upper));
+      while (true) {
+         Piece[] old = pieces.get();
+         List<Piece> next = new ArrayList<>(old.length + 1);
+         boolean added = false;
+         for (Piece p : old) {
+            if (p.lower >= lower && p.upper <= upper) {
+               continue; // one of the new piece's children
+            }
+            if (!added && p.lower > upper) {
+               next.add(piece);
+               added = true;
+            }
+            next.add(p);
+         }
+         if (!added) {
+            next.add(piece);
+         }
+         if (pieces.compareAndSet(old, next.toArray(new Piece[0]))) {
+            break;
+         }
+      }
+      Runnable l = listener;
+      if (l != null) {
+         l.run();
+      }
+   }
+}
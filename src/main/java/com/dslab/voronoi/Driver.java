@@ -1,16 +1,61 @@
 package com.dslab.voronoi;
 
+import java.awt.GraphicsEnvironment;
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Vector;
-import java.util.Random;
 
 public class Driver {
    public static void main(String[] args) {
       int N = 0;
+      int threads = 1;
+      String file = null;
+      // --headless: no window, just build and print how long each phase took.
+      // also the default when there is no display
+      boolean headless = false;
+      // --tiles=DIR [--zoom=N]: also render a z/x/y png tile pyramid into DIR
+      String tiles = null;
+      int zoom = 6;
+      // --engine=fortune: build with the sweep line instead of divide and conquer
+      boolean fortune = false;
 
       // validate args
-      if (args.length > 0) {
+      List<String> positional = new ArrayList<>();
+      for (String arg : args) {
+         if (arg.equals("--headless")) {
+            headless = true;
+         } else if (arg.startsWith("--tiles=")) {
+            tiles = arg.substring("--tiles=".length());
+         } else if (arg.startsWith("--zoom=")) {
+            try {
+               zoom = Math.max(Integer.parseInt(arg.substring("--zoom=".length())), 0);
+            } catch (Exception e) {
+            }
+         } else if (arg.startsWith("--engine=")) {
+            fortune = arg.substring("--engine=".length()).equals("fortune");
+         } else {
+            positional.add(arg);
+         }
+      }
+      // only ask AWT for a display when --headless wasn't given, so that it
+      // isn't loaded at all then
+      if (!headless) {
+         headless = GraphicsEnvironment.isHeadless();
+      }
+      if (positional.size() > 0) {
+         try {
+            N = Integer.parseInt(positional.get(0));
+         } catch (Exception e) {
+            // not a count, read the points from this "x,y" file instead
+            file = positional.get(0);
+         }
+      }
+      // optional second arg: number of threads for the parallel build
+      if (positional.size() > 1) {
          try {
-            N = Integer.parseInt(args[0]);
+            threads = Integer.parseInt(positional.get(1));
          } catch (Exception e) {
          }
       }
@@ -20,26 +65,27 @@ public class Driver {
       // System.exit(-1);
       // }
 
-      // generate N points
-      Random rand = new Random(10); // 10
-      Vector<Point> points = new Vector<Point>();
-
+      // generate N points: one per column at a random y, already sorted in x and
+      // then in y. streamed so there's no N x N occupancy map
       // space should be always 1250 x 1250
       // int size = 3000;
+      // the window and the diagram's edges cover the generated square, or the
+      // one the loaded points fit in
       int size = N;
-      int[][] map = new int[size][size];
-
-      for (int i = 0; i < N; i++) {
-
-         do {
-            int x = i;
-
-            int y = rand.nextInt(size);
-            if (map[x][y] != 1) {
-               map[x][y] = 1;
-               break;
-            }
-         } while (true);
+      PhaseTimer timer = new PhaseTimer();
+      timer.start("points");
+      PointSource source = new ColumnPointSource(N, size, 10); // 10
+      if (file != null) {
+         try {
+            source = PointFileLoader.load(file, threads);
+         } catch (IOException e) {
+            System.err.println("could not read " + file + ": " + e.getMessage());
+            System.exit(-1);
+         }
+      }
+      Vector<Point> points = source.toVector();
+      if (file != null) {
+         size = extent(points);
       }
 
       // TODO: get this case working
@@ -74,22 +120,60 @@ public class Driver {
       // map[800][100] = 1;
       // map[100][100] = 1;
       // map[300][200] = 1;
-      // generate points on map[x][y] == 1
-      for (int x = 0; x < size; x++)
-         for (int y = 0; y < size; y++)
-            if (map[x][y] == 1) {
-               points.add(new Point(x, y));
-            }
-
-      VoronoiGraphics vg = new VoronoiGraphics(size, size, points);
-      Thread graphics = new Thread(vg);
-      graphics.start();
       // they are sorted in x and then in y
       // visualize the diagram: max size = 1250 x 1250
+      // the window draws the finished parts of the diagram the builder publishes
+      VoronoiGraphics vg = null;
+      DiagramSnapshots snapshots = null;
+      if (!headless) {
+         snapshots = new DiagramSnapshots();
+         vg = new VoronoiGraphics(size, size, points, snapshots);
+         vg.start();
+      }
       // generate a voronoi diagram
-      VoronoiDiagram voronoi = new VoronoiDiagram(50000, 50000, points);
+      timer.start("build");
+      if (fortune) {
+         // the sweep has no finished subtrees to show, the window gets the whole
+         // diagram at the end
+         new FortuneDiagram(size, size, points);
+      } else if (threads > 1) {
+         new VoronoiDiagram(size, size, points, threads, VoronoiDiagram.DEFAULT_CUTOFF, snapshots);
+      } else {
+         new VoronoiDiagram(size, size, points, snapshots);
+      }
+      timer.stop();
+      if (vg != null) {
+         vg.finished();
+      }
+
+      if (tiles != null) {
+         timer.start("tiles");
+         try {
+            TileRenderer.Result res = new TileRenderer(points).render(Paths.get(tiles), zoom, threads);
+            timer.stop();
+            System.out.printf("%d tiles (%d empty skipped) in %.1f s, %.0f tiles/s%n", res.getWritten(),
+                  res.getEmpty(), res.getSeconds(), res.tilesPerSecond());
+         } catch (IOException e) {
+            System.err.println("could not write tiles to " + tiles + ": " + e.getMessage());
+            System.exit(-1);
+         }
+      }
 
       System.out.println("COMPLETED");
+      if (headless) {
+         System.out.println(points.size() + " sites, " + (fortune ? "fortune sweep" : threads + " thread(s)"));
+         timer.print(System.out);
+      }
 
    }
+
+   // half the side of the square around the origin that holds every point.
+   // edges run out to plus and minus this
+   static int extent(Vector<Point> points) {
+      double max = 1;
+      for (Point p : points) {
+         max = Math.max(max, Math.max(Math.abs(p.getX()), Math.abs(p.getY())));
+      }
+      return (int) Math.ceil(max);
+   }
 }
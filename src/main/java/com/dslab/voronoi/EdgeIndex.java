@@ -0,0 +1,371 @@
+package com.dslab.voronoi;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Vector;
+import java.util.function.IntConsumer;
+
+/**
+ * Read only spatial index of the edges of a diagram (or of a range of its
+ * sites), for drawing just the part of a large diagram that is on screen.
+ *
+ * Edges are copied into float arrays and bucketed in a hierarchy of uniform
+ * grids laid over the sites. The finest grid has about two edges per cell and
+ * each grid above it has cells twice the size, up to one cell for everything.
+ * An edge goes into the finest grid where its bounding box touches at most
+ * MAX_CELLS_PER_EDGE cells, into each of those cells, so long edges (and
+ * unfinished diagrams have many) cost no more than short ones. Each grid is one
+ * flat cell-to-edges list.
+ *
+ * The sites are kept too, sorted in x, so a viewport finds its sites with a
+ * binary search. A diagram's points start out in that order but inserts,
+ * deletes and moves don't keep it, so the index sorts its own copy when they
+ * are out of order.
+ *
+ * Once built the index never changes, so any number of threads can query it.
+ */
+public class EdgeIndex {
+   // an edge goes to the lowest level where its box touches at most this many cells
+   private static final int MAX_CELLS_PER_EDGE = 4;
+
+   private final int edgeCount;
+   private final float[] x0, y0, x1, y1;
+
+   private final int siteCount;
+   private final float[] siteX, siteY;
+
+   private final double minX, minY;
+   private final Grid[] levels;
+
+   /**
+    * Index every edge of the given sites
+    */
+   public static EdgeIndex build(Vector<Point> points) {
+      return build(points, 0, points.size() - 1);
+   }
+
+   /**
+    * Index the edges of the sites points[lower .. upper]. Each edge is taken from
+    * the site it lists first, so the range should hold both sites of every edge
+    * (true for any subtree of the divide).
+    */
+   public static EdgeIndex build(Vector<Point> points, int lower, int upper) {
+      int edges = 0;
+      Object[][] rings = new Object[Math.max(upper - lower + 1, 0)][];
+      for (int s = lower; s <= upper; s++) {
+         Point p = points.get(s);
+         // copy of the ring so a ring that is still changing can't throw here
+         rings[s - lower] = p.getLines().toArray();
+         for (Object o : rings[s - lower]) {
+            if (((Line) o).getP0() == p) {
+               edges++;
+            }
+         }
+      }
+      return new EdgeIndex(points, lower, rings, edges);
+   }
+
+   private EdgeIndex(Vector<Point> points, int lower, Object[][] rings, int edges) {
+      siteCount = rings.length;
+      siteX = new float[siteCount];
+      siteY = new float[siteCount];
+      double loX = Double.MAX_VALUE, loY = Double.MAX_VALUE;
+      double hiX = -Double.MAX_VALUE, hiY = -Double.MAX_VALUE;
+      for (int s = 0; s < siteCount; s++) {
+         Point p = points.get(lower + s);
+         siteX[s] = (float) p.getX();
+         siteY[s] = (float) p.getY();
+         loX = Math.min(loX, p.getX());
+         loY = Math.min(loY, p.getY());
+         hiX = Math.max(hiX, p.getX());
+         hiY = Math.max(hiY, p.getY());
+      }
+      if (siteCount == 0) {
+         loX = loY = hiX = hiY = 0;
+      }
+      sortSites();
+
+      float[] ex0 = new float[edges], ey0 = new float[edges];
+      float[] ex1 = new float[edges], ey1 = new float[edges];
+      int n = 0;
+      for (int s = 0; s < siteCount; s++) {
+         Point p = points.get(lower + s);
+         for (Object o : rings[s]) {
+            Line l = (Line) o;
+            if (l.getP0() == p) {
+               ex0[n] = (float) l.getX0();
+               ey0[n] = (float) l.getY0();
+               ex1[n] = (float) l.getX1();
+               ey1[n] = (float) l.getY1();
+               n++;
+            }
+         }
+      }
+      edgeCount = n;
+      x0 = ex0;
+      y0 = ey0;
+      x1 = ex1;
+      y1 = ey1;
+
+      // level 0: about two edges per cell, cells roughly square. every level
+      // above has cells twice as wide and high as the one below, up to a single cell
+      double w = Math.max(hiX - loX, 1);
+      double h = Math.max(hiY - loY, 1);
+      int cells = Math.max(1, edgeCount / 2);
+      int cols = (int) Math.max(1, Math.min(cells, Math.round(Math.sqrt(cells * w / h))));
+      int rows = Math.max(1, cells / cols);
+      minX = loX;
+      minY = loY;
+      List<Grid> grids = new ArrayList<>();
+      double cellW = w / cols, cellH = h / rows;
+      while (true) {
+         grids.add(new Grid(cols, rows, cellW, cellH));
+         if (cols == 1 && rows == 1) {
+            break;
+         }
+         cols = (cols + 1) / 2;
+         rows = (rows + 1) / 2;
+         cellW *= 2;
+         cellH *= 2;
+      }
+      levels = grids.toArray(new Grid[0]);
+
+      // each edge goes to the lowest level where its box touches at most
+      // MAX_CELLS_PER_EDGE cells, then count, prefix sum, fill
+      byte[] edgeLevel = new byte[edgeCount];
+      for (int e = 0; e < edgeCount; e++) {
+         int l = 0;
+         while (levels[l].cellsTouched(this, e) > MAX_CELLS_PER_EDGE) {
+            l++;
+         }
+         edgeLevel[e] = (byte) l;
+         Grid g = levels[l];
+         g.forEachCell(this, e, c -> g.cellStart[c + 1]++);
+      }
+      for (Grid g : levels) {
+         for (int c = 0; c < g.cols * g.rows; c++) {
+            g.cellStart[c + 1] += g.cellStart[c];
+         }
+         g.cellEdges = new int[g.cellStart[g.cols * g.rows]];
+         g.fill = Arrays.copyOf(g.cellStart, g.cols * g.rows);
+      }
+      for (int e = 0; e < edgeCount; e++) {
+         Grid g = levels[edgeLevel[e]];
+         int edge = e;
+         g.forEachCell(this, e, c -> g.cellEdges[g.fill[c]++] = edge);
+      }
+      for (Grid g : levels) {
+         g.fill = null;
+      }
+   }
+
+   // put the sites in x order unless they are already
+   private void sortSites() {
+      int s = 1;
+      while (s < siteCount && siteX[s - 1] <= siteX[s]) {
+         s++;
+      }
+      if (s >= siteCount) {
+         return;
+      }
+      // x as an int that sorts like the float, above the site's slot
+      long[] keys = new long[siteCount];
+      for (s = 0; s < siteCount; s++) {
+         int bits = Float.floatToIntBits(siteX[s]);
+         keys[s] = (long) (bits ^ ((bits >> 31) & 0x7fffffff)) << 32 | s;
+      }
+      Arrays.sort(keys);
+      float[] x = siteX.clone(), y = siteY.clone();
+      for (s = 0; s < siteCount; s++) {
+         int from = (int) keys[s];
+         siteX[s] = x[from];
+         siteY[s] = y[from];
+      }
+   }
+
+   /**
+    * One level of the grid hierarchy. The edges of cell c are cellEdges[cellStart[c]
+    * .. cellStart[c + 1])
+    */
+   private static class Grid {
+      final int cols, rows;
+      final double cellW, cellH;
+      final int[] cellStart;
+      int[] cellEdges;
+      int[] fill;
+
+      Grid(int cols, int rows, double cellW, double cellH) {
+         this.cols = cols;
+         this.rows = rows;
+         this.cellW = cellW;
+         this.cellH = cellH;
+         cellStart = new int[cols * rows + 1];
+      }
+
+      int col(EdgeIndex index, double x) {
+         int c = (int) Math.floor((x - index.minX) / cellW);
+         return Math.max(0, Math.min(cols - 1, c));
+      }
+
+      int row(EdgeIndex index, double y) {
+         int r = (int) Math.floor((y - index.minY) / cellH);
+         return Math.max(0, Math.min(rows - 1, r));
+      }
+
+      long cellsTouched(EdgeIndex index, int e) {
+         long across = col(index, Math.max(index.x0[e], index.x1[e])) - col(index, Math.min(index.x0[e], index.x1[e])) + 1;
+         long down = row(index, Math.max(index.y0[e], index.y1[e])) - row(index, Math.min(index.y0[e], index.y1[e])) + 1;
+         return across * down;
+      }
+
+      void forEachCell(EdgeIndex index, int e, IntConsumer cell) {
+         int c0 = col(index, Math.min(index.x0[e], index.x1[e])), c1 = col(index, Math.max(index.x0[e], index.x1[e]));
+         int r0 = row(index, Math.min(index.y0[e], index.y1[e])), r1 = row(index, Math.max(index.y0[e], index.y1[e]));
+         for (int r = r0; r <= r1; r++) {
+            for (int c = c0; c <= c1; c++) {
+               cell.accept(r * cols + c);
+            }
+         }
+      }
+   }
+
+   /**
+    * Call visit once with the id of every edge that may pass through the box
+    * [minX, maxX] x [minY, maxY]. Every edge that does is reported, along with
+    * some that only come close (their bounding box meets the box)
+    */
+   public void query(double minX, double minY, double maxX, double maxY, IntConsumer visit) {
+      for (int l = 0; l < levels.length; l++) {
+         Grid g = levels[l];
+         int qc0 = g.col(this, minX), qc1 = g.col(this, maxX);
+         int qr0 = g.row(this, minY), qr1 = g.row(this, maxY);
+         for (int r = qr0; r <= qr1; r++) {
+            for (int c = qc0; c <= qc1; c++) {
+               int cell = r * g.cols + c;
+               for (int i = g.cellStart[cell]; i < g.cellStart[cell + 1]; i++) {
+                  int e = g.cellEdges[i];
+                  // an edge is in every cell its box touches. only report it from the first
+                  // of those cells that is inside the query
+                  if (Math.max(g.col(this, Math.min(x0[e], x1[e])), qc0) != c
+                        || Math.max(g.row(this, Math.min(y0[e], y1[e])), qr0) != r) {
+                     continue;
+                  }
+                  // the boxes of edges on the upper levels are big and mostly empty, so
+                  // check the segment itself there
+                  if (meets(e, minX, minY, maxX, maxY) && (l == 0 || crosses(e, minX, minY, maxX, maxY))) {
+                     visit.accept(e);
+                  }
+               }
+            }
+         }
+      }
+   }
+
+   private boolean meets(int e, double minX, double minY, double maxX, double maxY) {
+      return Math.max(x0[e], x1[e]) >= minX && Math.min(x0[e], x1[e]) <= maxX
+            && Math.max(y0[e], y1[e]) >= minY && Math.min(y0[e], y1[e]) <= maxY;
+   }
+
+   // does the segment itself pass through the box? clips the segment's
+   // parameter range [0, 1] against each side of the box in turn
+   private boolean crosses(int e, double minX, double minY, double maxX, double maxY) {
+      double dx = x1[e] - x0[e];
+      double dy = y1[e] - y0[e];
+      double t0 = 0, t1 = 1;
+      for (int side = 0; side < 4; side++) {
+         double p, q;
+         switch (side) {
+         case 0:
+            p = -dx;
+            q = x0[e] - minX;
+            break;
+         case 1:
+            p = dx;
+            q = maxX - x0[e];
+            break;
+         case 2:
+            p = -dy;
+            q = y0[e] - minY;
+            break;
+         default:
+            p = dy;
+            q = maxY - y0[e];
+         }
+         if (p == 0) {
+            if (q < 0) {
+               return false;
+            }
+         } else if (p < 0) {
+            t0 = Math.max(t0, q / p);
+         } else {
+            t1 = Math.min(t1, q / p);
+         }
+         if (t0 > t1) {
+            return false;
+         }
+      }
+      return true;
+   }
+
+   /**
+    * Upper bound on how many edges query would report for this box, from the
+    * grids' cell counts alone. Used to pick a level of detail before drawing
+    */
+   public long estimate(double minX, double minY, double maxX, double maxY) {
+      long n = 0;
+      for (Grid g : levels) {
+         int qc0 = g.col(this, minX), qc1 = g.col(this, maxX);
+         for (int r = g.row(this, minY); r <= g.row(this, maxY); r++) {
+            n += g.cellStart[r * g.cols + qc1 + 1] - g.cellStart[r * g.cols + qc0];
+         }
+      }
+      return n;
+   }
+
+   public int edgeCount() {
+      return edgeCount;
+   }
+
+   public float x0(int e) {
+      return x0[e];
+   }
+
+   public float y0(int e) {
+      return y0[e];
+   }
+
+   public float x1(int e) {
+      return x1[e];
+   }
+
+   public float y1(int e) {
+      return y1[e];
+   }
+
+   public int siteCount() {
+      return siteCount;
+   }
+
+   public float siteX(int s) {
+      return siteX[s];
+   }
+
+   public float siteY(int s) {
+      return siteY[s];
+   }
+
+   // index of the first site with x >= the given x (sites are sorted in x)
+   public int firstSiteAtOrAfter(double x) {
+      int lo = 0, hi = siteCount;
+      while (lo < hi) {
+         int mid = (lo + hi) >>> 1;
+         if (siteX[mid] < x) {
+            lo = mid + 1;
+         } else {
+            hi = mid;
+         }
+      }
+      return lo;
+   }
+}
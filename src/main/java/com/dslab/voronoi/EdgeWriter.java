@@ -0,0 +1,151 @@
+package com.dslab.voronoi;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Stack;
+import java.util.Vector;
+
+/**
+ * Streams the edges of a finished diagram into a compact columnar binary file.
+ * Each edge is written once, from the site it lists first (getP0), even though
+ * both of its sites hold it.
+ *
+ * Layout, all little endian:
+ *
+ * <pre>
+ * header:  int magic ("VEDG"), int version
+ * blocks:  int count, then count values of each column in turn:
+ *          double x0[], double y0[], double x1[], double y1[],
+ *          int siteA[], int siteB[], byte flags[]
+ * trailer: int 0, long total edges
+ * </pre>
+ *
+ * (x0, y0) is the edge's src and (x1, y1) its end. siteA and siteB are the
+ * indexes of the two sites in the diagram's points vector. Bit 0 of flags is
+ * set if the src is a bounded voronoi vertex and bit 1 if the end is. An
+ * unbounded end is just a far point on the edge's direction.
+ *
+ * Columns are filled in direct buffers one block at a time and handed to the
+ * channel in a single gathering write, so the writer keeps a fixed few MB of
+ * buffers however large the diagram is.
+ */
+public class EdgeWriter {
+   public static final int MAGIC = 0x56454447; // "VEDG"
+   public static final int VERSION = 1;
+   public static final int BLOCK_EDGES = 1 << 16;
+
+   public static final int SRC_BOUNDED = 1;
+   public static final int END_BOUNDED = 2;
+
+   private final FileChannel channel;
+   private final ByteBuffer[] columns;
+   private final ByteBuffer x0, y0, x1, y1, siteA, siteB, flags;
+   private final ByteBuffer count;
+   private int inBlock = 0;
+   private long total = 0;
+
+   private EdgeWriter(FileChannel channel) {
+      this.channel = channel;
+      count = direct(4);
+      x0 = direct(BLOCK_EDGES * 8);
+      y0 = direct(BLOCK_EDGES * 8);
+      x1 = direct(BLOCK_EDGES * 8);
+      y1 = direct(BLOCK_EDGES * 8);
+      siteA = direct(BLOCK_EDGES * 4);
+      siteB = direct(BLOCK_EDGES * 4);
+      flags = direct(BLOCK_EDGES);
+      columns = new ByteBuffer[] { count, x0, y0, x1, y1, siteA, siteB, flags };
+   }
+
+   private static ByteBuffer direct(int bytes) {
+      return ByteBuffer.allocateDirect(bytes).order(ByteOrder.LITTLE_ENDIAN);
+   }
+
+   /**
+    * Write every edge of the diagram to file, replacing it if it exists
+    *
+    * @return the number of edges written
+    */
+   public static long write(VoronoiDiagram diagram, Path file) throws IOException {
+      return write(diagram.getPoints(), file);
+   }
+
+   public static long write(Vector<Point> points, Path file) throws IOException {
+      try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+            StandardOpenOption.TRUNCATE_EXISTING)) {
+         EdgeWriter writer = new EdgeWriter(channel);
+         writer.header();
+         for (int s = 0; s < points.size(); s++) {
+            Point p = points.get(s);
+            Stack<Line> lines = p.getLines();
+            for (int i = 0; i < lines.size(); i++) {
+               Line l = lines.get(i);
+               if (l.getP0() == p) {
+                  writer.add(l, s, l.getP1().getId());
+               }
+            }
+         }
+         writer.finish();
+         return writer.total;
+      }
+   }
+
+   private void header() throws IOException {
+      ByteBuffer header = ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN);
+      header.putInt(MAGIC).putInt(VERSION).flip();
+      writeFully(header);
+   }
+
+   private void add(Line l, int a, int b) throws IOException {
+      x0.putDouble(l.getX0());
+      y0.putDouble(l.getY0());
+      x1.putDouble(l.getX1());
+      y1.putDouble(l.getY1());
+      siteA.putInt(a);
+      siteB.putInt(b);
+      flags.put((byte) ((l.isSrcBound() ? SRC_BOUNDED : 0) | (l.isEndBound() ? END_BOUNDED : 0)));
+      total++;
+      if (++inBlock == BLOCK_EDGES) {
+         flush();
+      }
+   }
+
+   private void flush() throws IOException {
+      if (inBlock == 0) {
+         return;
+      }
+      count.clear();
+      count.putInt(inBlock);
+      for (ByteBuffer b : columns) {
+         b.flip();
+      }
+      long remaining = 0;
+      for (ByteBuffer b : columns) {
+         remaining += b.remaining();
+      }
+      while (remaining > 0) {
+         remaining -= channel.write(columns);
+      }
+      for (ByteBuffer b : columns) {
+         b.clear();
+      }
+      inBlock = 0;
+   }
+
+   private void finish() throws IOException {
+      flush();
+      ByteBuffer trailer = ByteBuffer.allocate(12).order(ByteOrder.LITTLE_ENDIAN);
+      trailer.putInt(0).putLong(total).flip();
+      writeFully(trailer);
+   }
+
+   private void writeFully(ByteBuffer b) throws IOException {
+      while (b.hasRemaining()) {
+         channel.write(b);
+      }
+   }
+}
@@ -0,0 +1,386 @@
+package com.dslab.voronoi;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.PriorityQueue;
+import java.util.Vector;
+
+import org.locationtech.jts.geom.Coordinate;
+
+/**
+ * Builds the same diagram as VoronoiDiagram with Fortune's sweep line
+ * algorithm instead of divide and conquer. It takes the same sites and fills
+ * the same per site Lines (in counter clockwise order, sharing a Coordinate at
+ * every vertex, unbounded ends out at the size_x/size_y extent), so
+ * EdgeWriter, EdgeIndex and the renderers work on either.
+ *
+ * The sweep line moves left to right in x, which is the order the sites
+ * already come in, so site events are just a walk over the sorted sites and
+ * only circle events need a priority queue. Events of arcs that lose a
+ * neighbor before they fire are not removed from the queue but cancelled and
+ * skipped when they come up. The beach line is a red-black tree of arcs
+ * ordered in y (BeachLine).
+ *
+ * Whether three sites make a circle event and whether a fourth is on the same
+ * circle are decided exactly with Predicates, only the vertex positions and
+ * breakpoints are computed in doubles.
+ *
+ * Unlike VoronoiDiagram's stitch the sweep doesn't care how sites cluster,
+ * every site and every vertex is one O(log n) event.
+ */
+public class FortuneDiagram extends Diagram {
+   // a new site this close to a breakpoint is on it
+   private static final double EPS = 1e-9;
+
+   private final BeachLine beach = new BeachLine();
+   private final PriorityQueue<Circle> circles = new PriorityQueue<>();
+   private final ArrayList<Edge> edges = new ArrayList<>();
+   private final ArrayDeque<BeachLine.Arc> squeezed = new ArrayDeque<>();
+
+   /**
+    * An edge while the sweep runs: the sites a and b it separates and the
+    * vertices it starts and ends at, null while that end is open. Going from
+    * start to end b is on the left, so the end lies in direction (b.y - a.y,
+    * a.x - b.x) from the start.
+    */
+   static class Edge {
+      final Point a, b;
+      Coordinate start, end;
+      // for an edge that starts at a vertex, a third site on that vertex's circle
+      Point third;
+      // zero length, left out of the diagram
+      boolean dropped;
+
+      Edge(Point a, Point b) {
+         this.a = a;
+         this.b = b;
+      }
+   }
+
+   // the point where the sweep line leaves the circle through an arc's site and
+   // its two neighbors, at which the arc is squeezed out
+   static class Circle implements Comparable<Circle> {
+      // null once cancelled
+      BeachLine.Arc arc;
+      final double x, y;
+      final double centerX;
+
+      Circle(BeachLine.Arc arc, double centerX, double y, double x) {
+         this.arc = arc;
+         this.centerX = centerX;
+         this.y = y;
+         this.x = x;
+      }
+
+      @Override
+      public int compareTo(Circle o) {
+         int c = Double.compare(x, o.x);
+         return (c != 0) ? c : Double.compare(y, o.y);
+      }
+   }
+
+   public FortuneDiagram(int size_x, int size_y, Vector<Point> points) {
+      super(size_x, size_y, points);
+      sweep(sorted(points));
+      finish();
+   }
+
+   /**
+    * Build the diagram from a stream of sorted sites. The source is read once
+    * into the diagram's own vector (see getPoints)
+    */
+   public FortuneDiagram(int size_x, int size_y, PointSource source) {
+      this(size_x, size_y, source.toVector());
+   }
+
+   // the sites in sweep order: x and then y. Sources already hand them out that
+   // way, anything else is sorted first
+   private static Point[] sorted(Vector<Point> points) {
+      Point[] sites = points.toArray(new Point[0]);
+      Comparator<Point> order = Comparator.comparingDouble(Point::getX).thenComparingDouble(Point::getY);
+      for (int i = 1; i < sites.length; i++) {
+         if (order.compare(sites[i - 1], sites[i]) > 0) {
+            Arrays.sort(sites, order);
+            break;
+         }
+      }
+      return sites;
+   }
+
+   private void sweep(Point[] sites) {
+      int next = 0;
+      Point last = null;
+      while (true) {
+         Circle circle = circles.peek();
+         while (circle != null && circle.arc == null) {
+            circles.poll();
+            circle = circles.peek();
+         }
+         Point site = (next < sites.length) ? sites[next] : null;
+         if (site != null && (circle == null || site.getX() < circle.x
+               || site.getX() == circle.x && site.getY() < circle.y)) {
+            next++;
+            // a duplicate gets no cell of its own
+            if (last == null || site.getX() != last.getX() || site.getY() != last.getY()) {
+               addArc(site);
+               last = site;
+            }
+         } else if (circle != null) {
+            circles.poll();
+            removeArc(circle.arc);
+         } else {
+            break;
+         }
+      }
+   }
+
+   // site event: split the arc above the new site
+   private void addArc(Point site) {
+      double directrix = site.getX();
+      double y = site.getY();
+      BeachLine.Arc lArc = null, rArc = null;
+      BeachLine.Arc node = beach.root;
+      while (node != null) {
+         double below = lowerBreakPoint(node, directrix) - y;
+         if (below > EPS) {
+            node = BeachLine.left(node);
+            continue;
+         }
+         double above = y - upperBreakPoint(node, directrix);
+         if (above > EPS) {
+            if (BeachLine.right(node) == null) {
+               lArc = node;
+               break;
+            }
+            node = BeachLine.right(node);
+            continue;
+         }
+         if (below > -EPS) {
+            lArc = node.prev;
+            rArc = node;
+         } else if (above > -EPS) {
+            lArc = node;
+            rArc = node.next;
+         } else {
+            lArc = rArc = node;
+         }
+         break;
+      }
+
+      BeachLine.Arc arc = new BeachLine.Arc(site);
+      beach.insertAfter(lArc, arc);
+      if (lArc == null && rArc == null) {
+         return;
+      }
+      if (lArc == rArc) {
+         // the new arc splits lArc in two
+         cancel(lArc);
+         rArc = new BeachLine.Arc(lArc.site);
+         beach.insertAfter(arc, rArc);
+         arc.edge = rArc.edge = newEdge(lArc.site, site, null);
+         addCircle(lArc);
+         addCircle(rArc);
+         return;
+      }
+      if (rArc == null) {
+         // above every arc, on the sweep line with the sites before it
+         arc.edge = newEdge(lArc.site, site, null);
+         return;
+      }
+      // right on the breakpoint between two arcs: they meet the new one at a
+      // vertex straight away
+      cancel(lArc);
+      cancel(rArc);
+      Edge e = rArc.edge;
+      Coordinate vertex;
+      if (e.start != null && e.third != null && Predicates.inCircle(e.a, e.b, e.third, site) == 0) {
+         // the breakpoint only just left a vertex and the site is on the same
+         // circle: it joins that vertex instead of adding an edge of length 0
+         vertex = e.start;
+         e.dropped = true;
+      } else {
+         vertex = circumcenter(lArc.site, site, rArc.site);
+         endEdge(e, lArc.site, rArc.site, vertex);
+      }
+      arc.edge = newEdge(lArc.site, site, vertex);
+      arc.edge.third = rArc.site;
+      rArc.edge = newEdge(site, rArc.site, vertex);
+      rArc.edge.third = lArc.site;
+      addCircle(lArc);
+      addCircle(rArc);
+   }
+
+   // circle event: the arc (and any others squeezed to the same vertex) is gone
+   private void removeArc(BeachLine.Arc arc) {
+      Circle circle = arc.circle;
+      Coordinate vertex = new Coordinate(circle.centerX, circle.y);
+      Point a = arc.prev.site, b = arc.site, c = arc.next.site;
+
+      ArrayDeque<BeachLine.Arc> gone = squeezed;
+      gone.clear();
+      BeachLine.Arc lArc = arc.prev;
+      BeachLine.Arc rArc = arc.next;
+      gone.add(arc);
+      detach(arc);
+      // with 4 or more sites on one circle their arcs all vanish at its center
+      while (lArc.circle != null && lArc.prev != null && Predicates.inCircle(a, b, c, lArc.prev.site) == 0) {
+         BeachLine.Arc prev = lArc.prev;
+         gone.addFirst(lArc);
+         detach(lArc);
+         lArc = prev;
+      }
+      while (rArc.circle != null && rArc.next != null && Predicates.inCircle(a, b, c, rArc.next.site) == 0) {
+         BeachLine.Arc next = rArc.next;
+         gone.addLast(rArc);
+         detach(rArc);
+         rArc = next;
+      }
+      cancel(lArc);
+      cancel(rArc);
+
+      // every breakpoint between the arcs from lArc to rArc ends here
+      Point below = lArc.site;
+      for (BeachLine.Arc g : gone) {
+         endEdge(g.edge, below, g.site, vertex);
+         below = g.site;
+      }
+      endEdge(rArc.edge, below, rArc.site, vertex);
+      rArc.edge = newEdge(lArc.site, rArc.site, vertex);
+      rArc.edge.third = b;
+      addCircle(lArc);
+      addCircle(rArc);
+   }
+
+   private void detach(BeachLine.Arc arc) {
+      cancel(arc);
+      beach.remove(arc);
+   }
+
+   private static void cancel(BeachLine.Arc arc) {
+      if (arc.circle != null) {
+         arc.circle.arc = null;
+         arc.circle = null;
+      }
+   }
+
+   // queue the event that squeezes arc out, if its breakpoints converge
+   private void addCircle(BeachLine.Arc arc) {
+      BeachLine.Arc l = arc.prev;
+      BeachLine.Arc r = arc.next;
+      if (l == null || r == null || l.site == r.site) {
+         return;
+      }
+      // the breakpoints only meet if the sites turn clockwise
+      if (Predicates.orient(l.site, arc.site, r.site) >= 0) {
+         return;
+      }
+      Point b = arc.site;
+      double ax = l.site.getX() - b.getX(), ay = l.site.getY() - b.getY();
+      double cx = r.site.getX() - b.getX(), cy = r.site.getY() - b.getY();
+      double d = 2 * (ax * cy - ay * cx);
+      double ha = ax * ax + ay * ay;
+      double hc = cx * cx + cy * cy;
+      double x = (cy * ha - ay * hc) / d;
+      double y = (ax * hc - cx * ha) / d;
+      Circle circle = new Circle(arc, x + b.getX(), y + b.getY(), x + b.getX() + Math.sqrt(x * x + y * y));
+      arc.circle = circle;
+      circles.add(circle);
+   }
+
+   private Edge newEdge(Point a, Point b, Coordinate start) {
+      Edge e = new Edge(a, b);
+      e.start = start;
+      edges.add(e);
+      return e;
+   }
+
+   // the breakpoint between the arcs of below and above reached vertex. it ran
+   // forwards along the edge if below is the edge's a
+   private static void endEdge(Edge e, Point below, Point above, Coordinate vertex) {
+      if (e.a == below) {
+         e.end = vertex;
+      } else {
+         e.start = vertex;
+      }
+   }
+
+   /**
+    * y of the breakpoint between arc and the arc below it with the sweep line at
+    * x = directrix
+    */
+   private static double lowerBreakPoint(BeachLine.Arc arc, double directrix) {
+      double ry = arc.site.getY();
+      double pr = arc.site.getX() - directrix;
+      if (pr == 0) {
+         // the site is on the sweep line, its arc is still a ray
+         return ry;
+      }
+      BeachLine.Arc lArc = arc.prev;
+      if (lArc == null) {
+         return Double.NEGATIVE_INFINITY;
+      }
+      double ly = lArc.site.getY();
+      double pl = lArc.site.getX() - directrix;
+      if (pl == 0) {
+         return ly;
+      }
+      // solve a u^2 + 2 b u + c = 0 for u = y - ry, where the two parabolas meet
+      double hl = ly - ry;
+      double a = 1 / pr - 1 / pl;
+      double b = hl / pl;
+      double c = arc.site.getX() - lArc.site.getX() - hl * hl / pl;
+      double disc = Math.sqrt(Math.max(b * b - a * c, 0));
+      if (b >= 0) {
+         // same root as (-b + disc) / a, without the cancellation when a is small
+         return (b + disc == 0) ? (ry + ly) / 2 : -c / (b + disc) + ry;
+      }
+      return (a == 0) ? (ry + ly) / 2 : (-b + disc) / a + ry;
+   }
+
+   private static double upperBreakPoint(BeachLine.Arc arc, double directrix) {
+      if (arc.next != null) {
+         return lowerBreakPoint(arc.next, directrix);
+      }
+      return (arc.site.getX() == directrix) ? arc.site.getY() : Double.POSITIVE_INFINITY;
+   }
+
+   static Coordinate circumcenter(Point a, Point b, Point c) {
+      double ax = a.getX() - b.getX(), ay = a.getY() - b.getY();
+      double cx = c.getX() - b.getX(), cy = c.getY() - b.getY();
+      double d = 2 * (ax * cy - ay * cx);
+      double ha = ax * ax + ay * ay;
+      double hc = cx * cx + cy * cy;
+      return new Coordinate((cy * ha - ay * hc) / d + b.getX(), (ax * hc - cx * ha) / d + b.getY());
+   }
+
+   // turn the swept edges into the sites' Lines
+   private void finish() {
+      for (Edge e : edges) {
+         if (e.dropped) {
+            continue;
+         }
+         // sites go left to right like VoronoiDiagram's bisectors
+         boolean aFirst = e.a.getX() < e.b.getX() || e.a.getX() == e.b.getX() && e.a.getY() < e.b.getY();
+         Point left = aFirst ? e.a : e.b;
+         Point right = aFirst ? e.b : e.a;
+         Line line;
+         if (e.start == null && e.end == null) {
+            line = VoronoiDiagram.bisectorLine(size_x, size_y, left, right);
+         } else {
+            double dx = e.b.getY() - e.a.getY();
+            double dy = e.a.getX() - e.b.getX();
+            Coordinate start = (e.start != null) ? e.start
+                  : VoronoiDiagram.rayEnd(size_x, size_y, left, right, e.end, -dx, -dy);
+            Coordinate end = (e.end != null) ? e.end
+                  : VoronoiDiagram.rayEnd(size_x, size_y, left, right, e.start, dx, dy);
+            line = new Line(start, e.start != null, end, e.end != null, left, right);
+         }
+         left.insertLine(line);
+         right.insertLine(line);
+      }
+      edges.clear();
+      edges.trimToSize();
+   }
+}
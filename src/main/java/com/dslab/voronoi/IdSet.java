@@ -0,0 +1,57 @@
+package com.dslab.voronoi;
+
+import java.util.Arrays;
+
+/**
+ * A set of the dense Line ids a VoronoiDiagram build hands out, or of site ids,
+ * backed by a bitset. It remembers which ids were added so clearing only
+ * touches those words, and one set can be reused for every merge a thread
+ * runs. Lines not made by a build have id -1 and can't be added.
+ */
+class IdSet {
+   private long[] words = new long[64];
+   private int[] touched = new int[64];
+   private int size;
+
+   boolean contains(int id) {
+      int w = id >>> 6;
+      return id >= 0 && w < words.length && (words[w] & (1L << id)) != 0;
+   }
+
+   // returns false if the id was already in the set
+   boolean add(int id) {
+      if (id < 0) {
+         throw new IllegalArgumentException("no set id " + id);
+      }
+      int w = id >>> 6;
+      if (w >= words.length) {
+         words = Arrays.copyOf(words, Math.max(words.length * 2, w + 1));
+      }
+      long bit = 1L << id;
+      if ((words[w] & bit) != 0) {
+         return false;
+      }
+      words[w] |= bit;
+      if (size == touched.length) {
+         touched = Arrays.copyOf(touched, size * 2);
+      }
+      touched[size++] = id;
+      return true;
+   }
+
+   void clear() {
+      for (int i = 0; i < size; i++) {
+         words[touched[i] >>> 6] = 0;
+      }
+      size = 0;
+   }
+
+   int size() {
+      return size;
+   }
+
+   // the i-th id added since the last clear
+   int get(int i) {
+      return touched[i];
+   }
+}
@@ -0,0 +1,61 @@
+package com.dslab.voronoi;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Remembers which bisectors have crossed which lines during one merge. A line
+ * can only be crossed once by the bisector of a given pair of sites, which is
+ * what stops the stitch from looping when it comes back to the same pair.
+ *
+ * A line is only ever crossed by bisectors of the merge it takes part in, so
+ * the history does not need to outlive a merge. Each merge gets a new epoch
+ * number and lines stamped with an older epoch have no crossings. The crossings
+ * of a line are a linked list through the arrays here, headed by the line's
+ * hitHead, so nothing is hashed and clearing only touches what was recorded.
+ */
+class IntersectionHistory {
+
+   private static final AtomicInteger EPOCHS = new AtomicInteger();
+
+   private int epoch;
+   private int size;
+   // the two sites of each crossing bisector and the next crossing of the same line
+   private Point[] siteA = new Point[64];
+   private Point[] siteB = new Point[64];
+   private int[] nextHit = new int[64];
+
+   // start a new merge. Every crossing recorded before is forgotten
+   void begin() {
+      epoch = EPOCHS.incrementAndGet();
+      Arrays.fill(siteA, 0, size, null);
+      Arrays.fill(siteB, 0, size, null);
+      size = 0;
+   }
+
+   // has line already been crossed by a bisector of the same two sites?
+   boolean crossed(Line line, Line bisector) {
+      if (line.hitEpoch != epoch) {
+         return false;
+      }
+      for (int i = line.hitHead; i >= 0; i = nextHit[i]) {
+         if (siteA[i] == bisector.getP0() && siteB[i] == bisector.getP1()) {
+            return true;
+         }
+      }
+      return false;
+   }
+
+   void record(Line line, Line bisector) {
+      if (size == siteA.length) {
+         siteA = Arrays.copyOf(siteA, size * 2);
+         siteB = Arrays.copyOf(siteB, size * 2);
+         nextHit = Arrays.copyOf(nextHit, size * 2);
+      }
+      siteA[size] = bisector.getP0();
+      siteB[size] = bisector.getP1();
+      nextHit[size] = (line.hitEpoch == epoch) ? line.hitHead : -1;
+      line.hitEpoch = epoch;
+      line.hitHead = size++;
+   }
+}
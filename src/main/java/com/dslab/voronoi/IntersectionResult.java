@@ -0,0 +1,47 @@
+package com.dslab.voronoi;
+
+/**
+ * Mutable result of an intersection test. The stitch keeps these per thread
+ * and reuses them on every step so looking for the next intersection does not
+ * allocate.
+ */
+public class IntersectionResult {
+   double x;
+   double y;
+   // index of the intersected line in the point's line list
+   int index;
+   boolean found;
+
+   void clear() {
+      found = false;
+   }
+
+   void set(double x, double y, int index) {
+      this.x = x;
+      this.y = y;
+      this.index = index;
+      found = true;
+   }
+
+   public boolean found() {
+      return found;
+   }
+
+   public double getX() {
+      return x;
+   }
+
+   public double getY() {
+      return y;
+   }
+
+   public int getIndex() {
+      return index;
+   }
+
+   public double distance(double x, double y) {
+      double dx = this.x - x;
+      double dy = this.y - y;
+      return Math.sqrt(dx * dx + dy * dy);
+   }
+}
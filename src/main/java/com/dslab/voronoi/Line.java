@@ -3,23 +3,31 @@ package com.dslab.voronoi;
 import org.locationtech.jts.geom.Coordinate;
 import org.locationtech.jts.geom.LineSegment;
 
-import java.util.HashSet;
-import java.util.PriorityQueue;
-import java.util.Set;
-import java.util.Vector;
-
 public class Line extends LineSegment {
 
    static int RIGHT = 1, LEFT = -1, ZERO = 0;
 
+   // dense id from the counter of the VoronoiDiagram build that made the line,
+   // for the stitch's seen sets. -1 for lines made any other way
+   private int id = -1;
+
    private boolean p0Bound = false;
    private boolean p1Bound = false;
 
-   private HashSet<Line> pastIntersectedLines = new HashSet<>();
+   // the merge this line was last crossed in and the head of its crossings in
+   // that merge's IntersectionHistory
+   int hitEpoch;
+   int hitHead;
 
    // points that own this line (different from coords)
    private Point pA, pB;
 
+   // per thread scratch for the side tests so they don't allocate
+   // how far past a bound end a point still counts as on the edge
+   private static final double BOUND_TOLERANCE = 1e-8;
+
+   private static final ThreadLocal<IntersectionResult> SCRATCH = ThreadLocal.withInitial(IntersectionResult::new);
+
    public Line(Coordinate a, Coordinate b) {
       super(a, b);
    }
@@ -38,35 +46,46 @@ public class Line extends LineSegment {
       if (line.isHorizontal() && this.isHorizontal() || line.isVertical() && this.isVertical()) {
          return true;
       }
-      LineSegment l1, l2;
-      if (pA == line.pA) {
-         l1 = new LineSegment(pA.getCoordinate(), line.pB.getCoordinate());
-      } else {
-         l1 = new LineSegment(pA.getCoordinate(), line.pA.getCoordinate());
-      }
-      if (pB == line.pB) {
-         l2 = new LineSegment(pB.getCoordinate(), line.pA.getCoordinate());
-      } else {
-         l2 = new LineSegment(pB.getCoordinate(), line.pB.getCoordinate());
+      if (pA == null || line.pA == null) {
+         // free standing segments have no sites to compare. compare directions
+         double cross = (p1.x - p0.x) * (line.p1.y - line.p0.y) - (p1.y - p0.y) * (line.p1.x - line.p0.x);
+         return cross == 0;
       }
+      // the segments between the sites on either side of the two bisectors. if they
+      // are parallel so are the bisectors. Sites have integer coords so this is
+      // decided exactly
+      Point a2 = (pA == line.pA) ? line.pB : line.pA;
+      Point b2 = (pB == line.pB) ? line.pA : line.pB;
+      return Predicates.cross(pA, a2, pB, b2) == 0;
+   }
 
-      if (l1.lineIntersection(l2) == null) {
-         return true;
+   public Coordinate intersects(Line line) {
+      IntersectionResult res = new IntersectionResult();
+      if (intersects(line, res, null)) {
+         return new Coordinate(res.x, res.y);
       }
-      return false;
+      return null;
    }
 
-   public Coordinate intersects(Line line) {
+   /**
+    * Same as intersects(Line) but the intersection is written into res instead
+    * of a new Coordinate so the stitch loop does not allocate
+    * 
+    * @param history crossings of the current merge. may be null for a one off
+    *                test
+    * @return true if the lines intersect within both their bounds
+    */
+   public boolean intersects(Line line, IntersectionResult res, IntersectionHistory history) {
+      res.clear();
       // the same line cannot intersect this line more than once
-      if (pastIntersectedLines.contains(line)) {
-         return null;
+      if (history != null && history.crossed(this, line)) {
+         return false;
       }
       if (this.isParallel(line)) {
-         return null;
+         return false;
       }
-      Coordinate itx = this.lineIntersection(line);
-      if (itx == null) {
-         return null;
+      if (!lineIntersection(p0.x, p0.y, p1.x, p1.y, line.p0.x, line.p0.y, line.p1.x, line.p1.y, res)) {
+         return false;
       }
       // if this line is bound at this intersection point it means its already been
       // intersected
@@ -74,14 +93,63 @@ public class Line extends LineSegment {
       // return null;
       // }
 
-      if (withinBounds(itx) && line.withinBounds(itx)) {
-         pastIntersectedLines.add(line);
-         line.pastIntersectedLines.add(this);
-         return itx;
+      if (withinBounds(res.x, res.y) && line.withinBounds(res.x, res.y)) {
+         if (history != null) {
+            history.record(this, line);
+         }
+         return true;
       }
+      res.clear();
+      return false;
 
-      return null;
+   }
 
+   /**
+    * Intersection of the infinite lines through p and q. Same arithmetic as
+    * JTS's Intersection.intersection (conditioned on the middle of the overlap of
+    * the two envelopes) so the results match LineSegment.lineIntersection
+    * exactly, but written into res instead of a new Coordinate.
+    * 
+    * @return false if the lines are parallel
+    */
+   static boolean lineIntersection(double p1x, double p1y, double p2x, double p2y,
+         double q1x, double q1y, double q2x, double q2y, IntersectionResult res) {
+      double intMinX = Math.max(Math.min(p1x, p2x), Math.min(q1x, q2x));
+      double intMaxX = Math.min(Math.max(p1x, p2x), Math.max(q1x, q2x));
+      double intMinY = Math.max(Math.min(p1y, p2y), Math.min(q1y, q2y));
+      double intMaxY = Math.min(Math.max(p1y, p2y), Math.max(q1y, q2y));
+      double midx = (intMinX + intMaxX) / 2.0;
+      double midy = (intMinY + intMaxY) / 2.0;
+
+      p1x -= midx;
+      p1y -= midy;
+      p2x -= midx;
+      p2y -= midy;
+      q1x -= midx;
+      q1y -= midy;
+      q2x -= midx;
+      q2y -= midy;
+
+      double px = p1y - p2y;
+      double py = p2x - p1x;
+      double pw = p1x * p2y - p2x * p1y;
+
+      double qx = q1y - q2y;
+      double qy = q2x - q1x;
+      double qw = q1x * q2y - q2x * q1y;
+
+      double x = py * qw - qy * pw;
+      double y = qx * pw - px * qw;
+      double w = px * qy - qx * py;
+
+      double xInt = x / w;
+      double yInt = y / w;
+      if (Double.isNaN(xInt) || Double.isInfinite(xInt) || Double.isNaN(yInt) || Double.isInfinite(yInt)) {
+         res.clear();
+         return false;
+      }
+      res.set(xInt + midx, yInt + midy, -1);
+      return true;
    }
 
    public boolean bisects(Point other) {
@@ -93,6 +161,9 @@ public class Line extends LineSegment {
    public boolean equals(Object other) {
       if (other.getClass() == this.getClass()) {
          Line l = (Line) other;
+         if (pA == null || l.pA == null) {
+            return this == l;
+         }
          if (pA.equals(l.pA) && pB.equals(l.pB)) {
             return true;
          }
@@ -103,7 +174,18 @@ public class Line extends LineSegment {
 
    @Override
    public int hashCode() {
-      return pA.hashCode() * pB.hashCode();
+      if (pA == null) {
+         return System.identityHashCode(this);
+      }
+      return 31 * pA.hashCode() + pB.hashCode();
+   }
+
+   public int getId() {
+      return id;
+   }
+
+   void setId(int id) {
+      this.id = id;
    }
 
    public static boolean coordsEqual(Coordinate a, Coordinate b) {
@@ -121,6 +203,9 @@ public class Line extends LineSegment {
     */
    @Override
    public boolean isHorizontal() {
+      if (pA == null) {
+         return super.isHorizontal();
+      }
       return Math.abs(pA.getX() - pB.getX()) < 0.1;
    }
 
@@ -132,6 +217,9 @@ public class Line extends LineSegment {
     */
    @Override
    public boolean isVertical() {
+      if (pA == null) {
+         return super.isVertical();
+      }
       return Math.abs(pA.getY() - pB.getY()) < 0.1;
    }
 
@@ -178,38 +266,32 @@ public class Line extends LineSegment {
    }
 
    /**
-    * Check if we are in bounds by checking the distance between the bounds and the
-    * distance from each bound to the point. If the distance from each bound to the
-    * point is the same as the distance between bounds, we know it is within the
-    * bounds. if the length from each bound to the point is greater than the length
-    * between bounds, we are outside the bounds and can determine which bound we
-    * are outside of by seeing which bound is closer to the point a
+    * Check if a point on this line lies between its bounds, by projecting it onto
+    * the line from each bound end. A point is let past a bound only by rounding
+    * error, so near-cocircular sites, whose vertices sit close together, can't be
+    * taken for a crossing beyond the end of an edge
     * 
     * @param a Should be a point on the infinite Line represented by this line
     *          segment!!
     * @return true if within bounds
     */
    public boolean withinBounds(Coordinate a) {
+      return withinBounds(a.x, a.y);
+   }
 
-      if (!p0Bound && !p1Bound) {
-         return true;
-      }
-      double boundLength = p0.distance(p1);
-      double distToP0 = a.distance(p0);
-      double distToP1 = a.distance(p1);
-
-      // if boundlenght = (distP0 + distP1) within 1 unit. It will never be negative
-      if ((distToP0 + distToP1) - boundLength < 0.01) {
-         // within both bounds
-         return true;
-      } else if (distToP0 < distToP1) {
+   public boolean withinBounds(double x, double y) {
+      double dx = p1.x - p0.x;
+      double dy = p1.y - p0.y;
+      double slack = BOUND_TOLERANCE * Math.sqrt(dx * dx + dy * dy);
+      if (p0Bound && (x - p0.x) * dx + (y - p0.y) * dy < -slack) {
          // outside of P0 bound
-         return !p0Bound;
-      } else {
+         return false;
+      }
+      if (p1Bound && (p1.x - x) * dx + (p1.y - y) * dy < -slack) {
          // outside of P1 bound
-         return !p1Bound;
+         return false;
       }
-
+      return true;
    }
 
    public Point getP0() {
@@ -220,9 +302,11 @@ public class Line extends LineSegment {
       return pB;
    }
 
+   // the coordinate is shared, not copied: every line meeting at a voronoi vertex
+   // holds the same record. It must not be mutated after it is handed over
    public void setSrc(Coordinate p) {
       double oldAngle = this.angle();
-      p0 = new Coordinate(p);
+      p0 = p;
       p0Bound = true;
       double newAngle = this.angle();
       if (!this.isVertical()) { // vertical flip will result in similar radians but opposite sign
@@ -243,9 +327,10 @@ public class Line extends LineSegment {
       return p1Bound;
    }
 
+   // shares the coordinate like setSrc
    public void setEnd(Coordinate p) {
       double oldAngle = this.angle();
-      p1 = new Coordinate(p);
+      p1 = p;
       p1Bound = true;
       double newAngle = this.angle();
       if (Math.abs(Math.abs(oldAngle) - Math.abs(newAngle)) > 0.00001) { // its flipped 180 degrees if the angle is
@@ -287,22 +372,6 @@ public class Line extends LineSegment {
       return p1;
    }
 
-   public void setX0(double x) {
-      p0.setX(x);
-   }
-
-   public void setX1(double x) {
-      p1.setX(x);
-   }
-
-   public void setY0(double y) {
-      p0.setY(y);
-   }
-
-   public void setY1(double y) {
-      p1.setY(y);
-   }
-
    // p1 is left, p2 is right
    public Line(double x1, double y1, double x2, double y2, Point p1, Point p2) {
       this(x1, y1, x2, y2);
@@ -317,21 +386,52 @@ public class Line extends LineSegment {
       pB = b;
    }
 
-   // delete all references to this line
-   public void removeSelf() {
+   // a finished edge between a and b. Shares src and end like setSrc/setEnd, for
+   // builders that know the vertices up front (FortuneDiagram)
+   Line(Coordinate src, boolean srcBound, Coordinate end, boolean endBound, Point a, Point b) {
+      super(src, end);
+      p0Bound = srcBound;
+      p1Bound = endBound;
+      pA = a;
+      pB = b;
+   }
 
-      pA.removeLine(this);
-      pB.removeLine(this);
-      for (Line l : pastIntersectedLines) {
-         l.pastIntersectedLines.remove(this);
-      }
+   // move the ends of a finished edge, sharing the coordinates like the
+   // constructor above. no flip checks, the caller knows the new ends
+   void setEnds(Coordinate src, boolean srcBound, Coordinate end, boolean endBound) {
+      p0 = src;
+      p1 = end;
+      p0Bound = srcBound;
+      p1Bound = endBound;
+   }
 
+   // make this the unbounded line of a and b from src through end, for a line
+   // that is reused as scratch
+   void reset(Coordinate src, Coordinate end, Point a, Point b) {
+      setEnds(src, false, end, false);
+      pA = a;
+      pB = b;
    }
 
-   public void cutOffLines(int direction, Line cut, double exactCut, PriorityQueue<Line> res) {
+   // whether v is one of this line's bounded ends, by identity
+   boolean boundAt(Coordinate v) {
+      return (p0 == v && p0Bound) || (p1 == v && p1Bound);
+   }
 
-      pA.cutOffLines(direction, cut, exactCut, res);
-      pB.cutOffLines(direction, cut, exactCut, res);
+   // put the sites back in x and then y order after they moved
+   void orderSites() {
+      if (pB.getX() < pA.getX() || pB.getX() == pA.getX() && pB.getY() < pA.getY()) {
+         Point t = pA;
+         pA = pB;
+         pB = t;
+      }
+   }
+
+   // delete all references to this line
+   public void removeSelf() {
+
+      pA.removeLine(this);
+      pB.removeLine(this);
 
    }
 
@@ -362,12 +462,12 @@ public class Line extends LineSegment {
    }
 
    public double getDirOfCoord(Coordinate p) {
-      LineSegment line = new LineSegment(p, new Coordinate(100, p.getY()));
-      Coordinate intersect = line.lineIntersection(this);
-      if (intersect == null) {
+      // intersect a horizontal line through p with this line
+      IntersectionResult intersect = SCRATCH.get();
+      if (!lineIntersection(p.x, p.y, 100, p.y, p0.x, p0.y, p1.x, p1.y, intersect)) {
          return Double.NaN;
       }
-      return intersect.getX() - p.getX();
+      return intersect.x - p.getX();
    }
 
    public boolean inYBounds(double y) {
@@ -0,0 +1,193 @@
+package com.dslab.voronoi;
+
+import java.util.Vector;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Lloyd's relaxation: every iteration moves each site to the centroid of its
+ * cell clipped to the 0..size_x, 0..size_y domain, which spreads the sites out
+ * towards a centroidal Voronoi tessellation.
+ *
+ * The diagram is built once and then kept up to date with moveSites, so an
+ * iteration after the first few only flips the edges whose neighbors changed
+ * (see DiagramEditor.move) instead of sweeping everything again. While the
+ * sites still move so much that the repair is slower than a sweep they are
+ * swept instead, trying the repair again after a few sweeps. Centroids are
+ * computed in parallel on a fork/join pool, each cell clipped by the half
+ * planes of its neighbors, and the centroid and target arrays are reused
+ * between iterations. Sites keep integer coordinates like every Point, so a
+ * centroid is rounded to the nearest grid point and the relaxation stops once
+ * no site moves further than the tolerance.
+ */
+public class LloydRelaxation {
+   // sites per centroid task
+   private static final int CUTOFF = 1024;
+
+   private final int size_x;
+   private final int size_y;
+   private final Vector<Point> points;
+   private FortuneDiagram diagram;
+   private final PhaseTimer timer = new PhaseTimer();
+
+   // centroid of each site's cell, and where the site moves to
+   private double[] cx = new double[0];
+   private double[] cy = new double[0];
+   private double[] tx = new double[0];
+   private double[] ty = new double[0];
+
+   // how long the last sweep and the last repair in place took
+   private long sweepNanos;
+   private long repairNanos;
+
+   private int iterations;
+   private int sweeps;
+   private double lastMove = Double.POSITIVE_INFINITY;
+
+   public LloydRelaxation(int size_x, int size_y, Vector<Point> points) {
+      this.size_x = size_x;
+      this.size_y = size_y;
+      this.points = points;
+      long start = System.nanoTime();
+      diagram = new FortuneDiagram(size_x, size_y, points);
+      sweepNanos = System.nanoTime() - start;
+   }
+
+   /**
+    * Relax on a pool of the given number of threads, see run(int, double,
+    * ForkJoinPool). The pool is shut down afterwards
+    */
+   public int run(int maxIterations, double tolerance, int threads) {
+      ForkJoinPool pool = new ForkJoinPool(threads);
+      try {
+         return run(maxIterations, tolerance, pool);
+      } finally {
+         pool.shutdown();
+      }
+   }
+
+   /**
+    * Move every site to its centroid until none moves further than tolerance
+    * or maxIterations are done. Another call carries on from where this one
+    * stopped
+    *
+    * @return how many iterations were done
+    */
+   public int run(int maxIterations, double tolerance, ForkJoinPool pool) {
+      int done = 0;
+      while (done < maxIterations) {
+         timer.start("iter " + (iterations + 1));
+         lastMove = step(pool);
+         timer.stop();
+         iterations++;
+         done++;
+         if (lastMove <= tolerance) {
+            break;
+         }
+      }
+      return done;
+   }
+
+   // one iteration, returns the furthest a site moved
+   private double step(ForkJoinPool pool) {
+      int n = points.size();
+      if (cx.length != n) {
+         cx = new double[n];
+         cy = new double[n];
+         tx = new double[n];
+         ty = new double[n];
+      }
+      pool.invoke(new CentroidTask(0, n));
+      double worst = 0;
+      for (int i = 0; i < n; i++) {
+         Point p = points.get(i);
+         tx[i] = Math.round(cx[i]);
+         ty[i] = Math.round(cy[i]);
+         worst = Math.max(worst, Math.hypot(tx[i] - p.getX(), ty[i] - p.getY()));
+      }
+      if (worst == 0) {
+         return 0;
+      }
+      long start = System.nanoTime();
+      if (repairNanos > sweepNanos) {
+         for (int i = 0; i < n; i++) {
+            Point p = points.get(i);
+            p.getCoordinate().x = tx[i];
+            p.getCoordinate().y = ty[i];
+            p.getLines().clear();
+         }
+         diagram = new FortuneDiagram(size_x, size_y, points);
+         sweepNanos = System.nanoTime() - start;
+         // the longer the repair took, the more sweeps before trying it again
+         repairNanos /= 2;
+         sweeps++;
+      } else {
+         if (!diagram.moveSites(tx, ty)) {
+            sweeps++;
+         }
+         repairNanos = System.nanoTime() - start;
+      }
+      return worst;
+   }
+
+   private class CentroidTask extends RecursiveAction {
+      private final int lower;
+      private final int upper;
+
+      CentroidTask(int lower, int upper) {
+         this.lower = lower;
+         this.upper = upper;
+      }
+
+      @Override
+      protected void compute() {
+         if (upper - lower <= CUTOFF) {
+            CellClipper clipper = new CellClipper();
+            double[] at = new double[2];
+            for (int i = lower; i < upper; i++) {
+               Point p = points.get(i);
+               at[0] = p.getX();
+               at[1] = p.getY();
+               // a site on top of another has no cell, and stays where it is
+               if (!p.getLines().isEmpty() || points.size() == 1) {
+                  clipper.clip(p, 0, 0, size_x, size_y);
+                  clipper.centroid(at);
+               }
+               cx[i] = at[0];
+               cy[i] = at[1];
+            }
+            return;
+         }
+         int mid = (lower + upper) >>> 1;
+         invokeAll(new CentroidTask(lower, mid), new CentroidTask(mid, upper));
+      }
+   }
+
+   public FortuneDiagram getDiagram() {
+      return diagram;
+   }
+
+   public Vector<Point> getPoints() {
+      return points;
+   }
+
+   // iterations done over every run so far
+   public int getIterations() {
+      return iterations;
+   }
+
+   // iterations whose sites moved too far to repair the diagram in place
+   public int getSweeps() {
+      return sweeps;
+   }
+
+   // the furthest a site moved in the last iteration
+   public double getLastMove() {
+      return lastMove;
+   }
+
+   // wall clock time of every iteration, "iter 1", "iter 2", ...
+   public PhaseTimer getTimer() {
+      return timer;
+   }
+}
@@ -0,0 +1,75 @@
+package com.dslab.voronoi;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+/**
+ * Points packed one per long: x in the high half and y (with its sign bit
+ * flipped) in the low half. Sorting the longs sorts the points in x and then in
+ * y, negative coords included, so sources that collect points in any order can
+ * sort and dedupe them with a primitive sort and no per point objects.
+ */
+public class PackedPointSource implements PointSource {
+   private final long[] keys;
+   private final int size;
+   private int next = 0;
+
+   /**
+    * @param keys packed points, sorted and without duplicates
+    * @param size number of keys in use
+    */
+   PackedPointSource(long[] keys, int size) {
+      this.keys = keys;
+      this.size = size;
+   }
+
+   static long pack(int x, int y) {
+      return ((long) x << 32) | ((y ^ Integer.MIN_VALUE) & 0xffffffffL);
+   }
+
+   static int unpackX(long key) {
+      return (int) (key >> 32);
+   }
+
+   static int unpackY(long key) {
+      return (int) key ^ Integer.MIN_VALUE;
+   }
+
+   // sort keys[0, size) and drop duplicates. returns the number left
+   static int sortUnique(long[] keys, int size) {
+      if (size > 1 << 16) {
+         Arrays.parallelSort(keys, 0, size);
+      } else {
+         Arrays.sort(keys, 0, size);
+      }
+      if (size == 0) {
+         return 0;
+      }
+      int unique = 1;
+      for (int i = 1; i < size; i++) {
+         if (keys[i] != keys[unique - 1]) {
+            keys[unique++] = keys[i];
+         }
+      }
+      return unique;
+   }
+
+   @Override
+   public int size() {
+      return size;
+   }
+
+   @Override
+   public boolean hasNext() {
+      return next < size;
+   }
+
+   @Override
+   public Point next() {
+      if (next >= size) {
+         throw new NoSuchElementException();
+      }
+      long key = keys[next++];
+      return new Point(unpackX(key), unpackY(key));
+   }
+}
@@ -0,0 +1,47 @@
+package com.dslab.voronoi;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Wall clock time of each phase of a run (generating points, building the
+ * diagram, ...), in the order they ran.
+ */
+public class PhaseTimer {
+   private final List<String> names = new ArrayList<>();
+   private final List<Long> nanos = new ArrayList<>();
+   private String current;
+   private long started;
+
+   // start timing a phase, ending the one before it if it is still running
+   public void start(String phase) {
+      stop();
+      current = phase;
+      started = System.nanoTime();
+   }
+
+   public void stop() {
+      if (current != null) {
+         names.add(current);
+         nanos.add(System.nanoTime() - started);
+         current = null;
+      }
+   }
+
+   // milliseconds the phase took, -1 if it never finished
+   public double millis(String phase) {
+      int i = names.indexOf(phase);
+      return (i < 0) ? -1 : nanos.get(i) / 1e6;
+   }
+
+   public void print(PrintStream out) {
+      stop();
+      long total = 0;
+      for (int i = 0; i < names.size(); i++) {
+         out.printf("%-8s %10.1f ms%n", names.get(i), nanos.get(i) / 1e6);
+         total += nanos.get(i);
+      }
+      out.printf("%-8s %10.1f ms%n", "total", total / 1e6);
+   }
+}
@@ -2,20 +2,27 @@ package com.dslab.voronoi;
 
 import org.locationtech.jts.geom.Coordinate;
 
-import java.util.PriorityQueue;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Stack;
 import java.util.Vector;
 
 public class Point {
+   // index in the points vector of the diagram this point is a site of. The
+   // diagram numbers its sites when it is built and keeps the numbers dense
+   // through edits, so a point has one number per diagram it is in at a time
+   private int id;
+
+   // the point's edges in counter clockwise order around it, ordered by the
+   // direction of the neighbor each one separates this point from. This is the
+   // order the edges appear along the boundary of the point's cell. The rings
+   // are the only edge store, stitch and trim work on them directly
    private Stack<Line> lines;
-
-   private Stack<Line> stitching;
    Coordinate coord;
 
    public Point(int i, int j) {
       coord = new Coordinate(i, j);
       lines = new Stack<Line>();
-      stitching = new Stack<>();
    }
 
    public Point(double x, double y) {
@@ -23,20 +30,160 @@ public class Point {
    }
 
    public void insertLine(Line line) {
-      lines.push(line);
+      lines.add(ringIndex(angleOf(line)), line);
+   }
+
+   /**
+    * Put the first k lines of add into the ring, where insertLine would put
+    * them one at a time. The ring is shifted once for all of them, so a cell
+    * gaining a run of edges costs one pass instead of one per edge. add is
+    * sorted in place
+    */
+   void insertLines(Line[] add, int k) {
+      // the few new lines into angle order, ties kept in the order given
+      for (int j = 1; j < k; j++) {
+         Line l = add[j];
+         double key = angleOf(l);
+         int i = j - 1;
+         while (i >= 0 && angleOf(add[i]) > key) {
+            add[i + 1] = add[i];
+            i--;
+         }
+         add[i + 1] = l;
+      }
+      // merge from the back, new lines after old ones at the same angle
+      int i = lines.size() - 1, j = k - 1;
+      lines.setSize(lines.size() + k);
+      for (int at = i + k; j >= 0; at--) {
+         if (i >= 0 && angleOf(lines.get(i)) > angleOf(add[j])) {
+            lines.set(at, lines.get(i--));
+         } else {
+            lines.set(at, add[j--]);
+         }
+      }
    }
 
    public void deleteLine(Line line) {
-      lines.remove(line);
+      int i = indexOf(line);
+      if (i >= 0) {
+         lines.remove(i);
+      }
+   }
+
+   /**
+    * Position of a line in this point's edge ring, found by binary search on its
+    * angle
+    * 
+    * @return the index or -1 if this point does not own the line
+    */
+   public int indexOf(Line line) {
+      if (line == null) {
+         return -1;
+      }
+      double key = angleOf(line);
+      int lo = 0, hi = lines.size();
+      while (lo < hi) {
+         int mid = (lo + hi) >>> 1;
+         if (angleOf(lines.get(mid)) < key) {
+            lo = mid + 1;
+         } else {
+            hi = mid;
+         }
+      }
+      // lines with the same angle are kept in the order they were added
+      for (int i = lo; i < lines.size() && angleOf(lines.get(i)) == key; i++) {
+         if (lines.get(i) == line) {
+            return i;
+         }
+      }
+      return -1;
+   }
+
+   // put the ring back in angle order after this point or its neighbors moved.
+   // small moves keep the cyclic order and only shift where it starts, which
+   // a rotation fixes
+   void sortLines() {
+      int k = lines.size(), drop = -1;
+      for (int i = 1; i < k; i++) {
+         if (angleOf(lines.get(i)) < angleOf(lines.get(i - 1))) {
+            if (drop >= 0) {
+               lines.sort((a, b) -> Double.compare(angleOf(a), angleOf(b)));
+               return;
+            }
+            drop = i;
+         }
+      }
+      if (drop < 0) {
+         return;
+      }
+      if (angleOf(lines.get(k - 1)) <= angleOf(lines.get(0))) {
+         Collections.rotate(lines, -drop);
+      } else {
+         lines.sort((a, b) -> Double.compare(angleOf(a), angleOf(b)));
+      }
+   }
+
+   /**
+    * Ring position of the first edge counter clockwise past the direction
+    * toward other, where an edge with other would go
+    */
+   int ringIndexToward(Point other) {
+      return ringIndex(pseudoAngle(other.getX() - getX(), other.getY() - getY()));
+   }
+
+   /**
+    * Add the edges from ring position first up to but not including stop,
+    * going counter clockwise (dir 1) or clockwise (dir -1), to out. Positions
+    * wrap around the ring
+    */
+   void edgesBetween(int first, int stop, int dir, Collection<Line> out) {
+      int size = lines.size();
+      if (size == 0) {
+         return;
+      }
+      int count = Math.floorMod((stop - first) * dir, size);
+      for (int k = 0, i = first; k < count; k++, i += dir) {
+         out.add(lines.get(Math.floorMod(i, size)));
+      }
+   }
+
+   // index after every line with an angle <= key
+   private int ringIndex(double key) {
+      int lo = 0, hi = lines.size();
+      while (lo < hi) {
+         int mid = (lo + hi) >>> 1;
+         if (angleOf(lines.get(mid)) <= key) {
+            lo = mid + 1;
+         } else {
+            hi = mid;
+         }
+      }
+      return lo;
+   }
+
+   // direction from this point to the neighbor the line separates it from
+   private double angleOf(Line line) {
+      Point other = (line.getP0() == this) ? line.getP1() : line.getP0();
+      return pseudoAngle(other.getX() - getX(), other.getY() - getY());
+   }
+
+   /**
+    * An angle in [0, 4) that sorts the same way as the counter clockwise angle
+    * from the x axis, without any trig
+    */
+   static double pseudoAngle(double dx, double dy) {
+      double p = dx / (Math.abs(dx) + Math.abs(dy));
+      return (dy < 0) ? 3 + p : 1 - p;
    }
 
    public double distance(Point p) {
       return p.getCoordinate().distance(coord);
    }
 
+   // takes the line peekLine shows, off the end of the ring
    public Line popLine() {
       if (lines.size() > 0)
-         return lines.remove(0);
+         return lines.pop();
       else
          return null;
    }
@@ -50,15 +197,72 @@ public class Point {
       return false;
    }
 
+   /**
+    * The sites whose cells meet at the voronoi vertex v, where this point's
+    * edges l and m end with m following l around this point. The sites go
+    * into around starting with this one and then on across m, clockwise
+    * around v, ending with l's other site
+    *
+    * @return how many, 0 if the edges around v don't link up or don't fit
+    */
+   int sitesAround(Line l, Line m, Coordinate v, Point[] around) {
+      Point last = (l.getP0() == this) ? l.getP1() : l.getP0();
+      Point at = (m.getP0() == this) ? m.getP1() : m.getP0();
+      around[0] = this;
+      // nearly always the two other sites are neighbors across v as well
+      for (int j = 0; j < at.lines.size(); j++) {
+         Line n = at.lines.get(j);
+         if ((n.getP0() == last || n.getP1() == last) && n.boundAt(v)) {
+            around[1] = at;
+            around[2] = last;
+            return 3;
+         }
+      }
+      Line edge = m;
+      int k = 1;
+      while (edge != l) {
+         if (k == around.length) {
+            return 0;
+         }
+         around[k++] = at;
+         int i = at.indexOf(edge), n = at.lines.size();
+         if (i < 0 || n < 2) {
+            return 0;
+         }
+         Line next = at.lines.get((i + 1) % n);
+         if (!next.boundAt(v)) {
+            next = at.lines.get((i + n - 1) % n);
+            if (!next.boundAt(v)) {
+               return 0;
+            }
+         }
+         at = (next.getP0() == at) ? next.getP1() : next.getP0();
+         edge = next;
+      }
+      return (at == this) ? k : 0;
+   }
+
    public String print() {
       return "" + getX() + ", " + getY();
    }
 
    public void removeLine(Line l) {
-      synchronized (this) {
-         lines.remove(l);
-      }
+      deleteLine(l);
+   }
 
+   public int getId() {
+      return id;
+   }
+
+   void setId(int id) {
+      this.id = id;
+   }
+
+   // number the sites of a diagram 0 to n - 1 in vector order
+   static void number(Vector<Point> points) {
+      for (int i = 0; i < points.size(); i++) {
+         points.get(i).id = i;
+      }
    }
 
    public Coordinate getCoordinate() {
@@ -92,41 +296,4 @@ public class Point {
       return Line.midPoint(this.coord, buddy.coord);
    }
 
-   /**
-    * delete all lines to the LEFT or RIGHT of the given line
-    * 
-    * @param direction the side of the line that we cut off (1 = left, 2 = right)
-    * @param cut       the line to determein where we make the cut
-    */
-   public void cutOffLines(int direction, Line cut, double exactCut, PriorityQueue<Line> removedLines) {
-
-      for (Line l : lines) {
-         if (direction == 2) { // cutoff right side
-
-            if (l.isRightOf(cut)) {
-
-               removedLines.add(l);
-            }
-         } else {
-
-            if (l.isLeftOf(cut)) {
-               removedLines.add(l);
-            }
-
-         }
-
-      }
-
-   }
-
-   public void applyStitching(Vector<Line> stitch) {
-
-      lines.addAll(stitching);
-      stitching = new Stack<>();
-   }
-
-   public void addStitch(Line l) {
-      stitching.add(l);
-   }
-
 }
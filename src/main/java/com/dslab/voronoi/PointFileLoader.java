@@ -0,0 +1,210 @@
+package com.dslab.voronoi;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Loads sites from a text file with one "x,y" pair per line. The file is
+ * memory mapped and cut into chunks on line boundaries, and each chunk is
+ * parsed by a worker thread straight from the mapped bytes (no String or
+ * Scanner per line). Coordinates are truncated to int like Point does, and the
+ * result is sorted in x and then in y with duplicates removed, ready for
+ * VoronoiDiagram.
+ *
+ * The two numbers may be separated by commas, semicolons, spaces or tabs. Lines
+ * that don't start with two numbers (headers, comments, blank lines) are
+ * skipped.
+ */
+public class PointFileLoader {
+
+   // no chunk is bigger than this so each fits in one mapping
+   private static final long MAX_CHUNK = 1L << 28;
+
+   public static PointSource load(String path, int threads) throws IOException {
+      return load(Paths.get(path), threads);
+   }
+
+   public static PointSource load(Path path, int threads) throws IOException {
+      try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+         long[] bounds = chunkBounds(channel, threads);
+         int chunks = bounds.length - 1;
+
+         ExecutorService pool = Executors.newFixedThreadPool(Math.max(1, Math.min(threads, chunks)));
+         try {
+            List<Future<Chunk>> parsed = new ArrayList<>();
+            for (int i = 0; i < chunks; i++) {
+               long start = bounds[i];
+               long end = bounds[i + 1];
+               parsed.add(pool.submit(() -> parse(channel.map(FileChannel.MapMode.READ_ONLY, start, end - start))));
+            }
+
+            // stitch the chunks' points into one array and sort it
+            Chunk[] results = new Chunk[chunks];
+            long total = 0;
+            for (int i = 0; i < chunks; i++) {
+               results[i] = parsed.get(i).get();
+               total += results[i].size;
+            }
+            if (total > Integer.MAX_VALUE) {
+               throw new IOException(path + " has more points than fit in one diagram");
+            }
+            long[] keys = new long[(int) total];
+            int at = 0;
+            for (Chunk c : results) {
+               System.arraycopy(c.keys, 0, keys, at, c.size);
+               at += c.size;
+            }
+            return new PackedPointSource(keys, PackedPointSource.sortUnique(keys, keys.length));
+         } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("interrupted while loading " + path, e);
+         } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+               throw (IOException) e.getCause();
+            }
+            throw new IOException("failed to load " + path, e.getCause());
+         } finally {
+            pool.shutdown();
+         }
+      }
+   }
+
+   // split the file into about threads * 4 chunks (more if the file is huge)
+   // with every boundary moved forward to the start of a line
+   private static long[] chunkBounds(FileChannel channel, int threads) throws IOException {
+      long size = channel.size();
+      int chunks = (int) Math.max(Math.max(1, threads) * 4L, (size + MAX_CHUNK - 1) / MAX_CHUNK);
+      chunks = (int) Math.max(1, Math.min(chunks, size / 4096 + 1));
+      long[] bounds = new long[chunks + 1];
+      ByteBuffer buf = ByteBuffer.allocate(4096);
+      for (int i = 1; i < chunks; i++) {
+         long pos = Math.max(size * i / chunks, bounds[i - 1]);
+         bounds[i] = nextLineStart(channel, pos, buf);
+      }
+      bounds[chunks] = size;
+      return bounds;
+   }
+
+   // position just after the first newline at or after pos
+   private static long nextLineStart(FileChannel channel, long pos, ByteBuffer buf) throws IOException {
+      long size = channel.size();
+      while (pos < size) {
+         buf.clear();
+         int n = channel.read(buf, pos);
+         if (n <= 0) {
+            break;
+         }
+         for (int i = 0; i < n; i++) {
+            if (buf.get(i) == '\n') {
+               return pos + i + 1;
+            }
+         }
+         pos += n;
+      }
+      return size;
+   }
+
+   private static class Chunk {
+      long[] keys = new long[1024];
+      int size;
+
+      void add(long key) {
+         if (size == keys.length) {
+            keys = Arrays.copyOf(keys, size * 2);
+         }
+         keys[size++] = key;
+      }
+   }
+
+   /**
+    * Parse every line of a chunk. This is a small state machine over the bytes
+    * so a line costs no allocation.
+    */
+   static Chunk parse(ByteBuffer buf) {
+      Chunk chunk = new Chunk();
+      int pos = 0;
+      int limit = buf.limit();
+      double[] xy = new double[2];
+      while (pos < limit) {
+         int end = pos;
+         while (end < limit && buf.get(end) != '\n') {
+            end++;
+         }
+         if (parseLine(buf, pos, end, xy)) {
+            chunk.add(PackedPointSource.pack((int) xy[0], (int) xy[1]));
+         }
+         pos = end + 1;
+      }
+      return chunk;
+   }
+
+   // read two numbers from [pos, end). false if the line doesn't hold two
+   private static boolean parseLine(ByteBuffer buf, int pos, int end, double[] xy) {
+      for (int n = 0; n < 2; n++) {
+         // skip separators
+         while (pos < end && isSeparator(buf.get(pos))) {
+            pos++;
+         }
+         boolean negative = false;
+         if (pos < end && (buf.get(pos) == '-' || buf.get(pos) == '+')) {
+            negative = buf.get(pos) == '-';
+            pos++;
+         }
+         double value = 0;
+         int digits = 0;
+         while (pos < end && isDigit(buf.get(pos))) {
+            value = value * 10 + (buf.get(pos++) - '0');
+            digits++;
+         }
+         if (pos < end && buf.get(pos) == '.') {
+            pos++;
+            double scale = 0.1;
+            while (pos < end && isDigit(buf.get(pos))) {
+               value += (buf.get(pos++) - '0') * scale;
+               scale /= 10;
+               digits++;
+            }
+         }
+         if (digits == 0) {
+            return false;
+         }
+         if (pos < end && (buf.get(pos) == 'e' || buf.get(pos) == 'E')) {
+            pos++;
+            boolean negExp = false;
+            if (pos < end && (buf.get(pos) == '-' || buf.get(pos) == '+')) {
+               negExp = buf.get(pos) == '-';
+               pos++;
+            }
+            int exp = 0;
+            while (pos < end && isDigit(buf.get(pos))) {
+               exp = exp * 10 + (buf.get(pos++) - '0');
+            }
+            value *= Math.pow(10, negExp ? -exp : exp);
+         }
+         if (pos < end && !isSeparator(buf.get(pos))) {
+            return false; // not a number, e.g. a header
+         }
+         xy[n] = negative ? -value : value;
+      }
+      return true;
+   }
+
+   private static boolean isDigit(byte b) {
+      return b >= '0' && b <= '9';
+   }
+
+   private static boolean isSeparator(byte b) {
+      return b == ',' || b == ' ' || b == '\t' || b == ';' || b == '\r';
+   }
+}
@@ -0,0 +1,24 @@
+package com.dslab.voronoi;
+
+import java.util.Iterator;
+import java.util.Vector;
+
+/**
+ * A stream of sites for the diagram. Sources hand out points sorted in x and
+ * then in y with no duplicates, which is the order VoronoiDiagram expects, so
+ * they can be fed straight into the builder without sorting.
+ */
+public interface PointSource extends Iterator<Point> {
+
+   // number of points the source will produce
+   int size();
+
+   // collect the whole source into one presized vector
+   default Vector<Point> toVector() {
+      Vector<Point> points = new Vector<>(size());
+      while (hasNext()) {
+         points.add(next());
+      }
+      return points;
+   }
+}
@@ -0,0 +1,157 @@
+package com.dslab.voronoi;
+
+import java.math.BigInteger;
+
+/**
+ * Exact geometric predicates on sites. Sites have integer coordinates (Point
+ * truncates them), so the sign of an orientation or in-circle determinant can
+ * be decided exactly instead of against an epsilon.
+ *
+ * Each predicate first evaluates the determinant in doubles and trusts the
+ * sign if the result is bigger than a bound on its rounding error (the static
+ * filters of Shewchuk's "Adaptive Precision Floating-Point Arithmetic and Fast
+ * Robust Geometric Predicates"). Only near-degenerate input, where the double
+ * result could have the wrong sign, is redone exactly: in longs when the
+ * products fit, otherwise with BigInteger.
+ */
+public final class Predicates {
+   // bounds on the relative rounding error of the double evaluations
+   private static final double EPS = Math.ulp(1.0) / 2;
+   private static final double ORIENT_BOUND = (3 + 16 * EPS) * EPS;
+   private static final double INCIRCLE_BOUND = (10 + 96 * EPS) * EPS;
+
+   // differences below this fit a product of two in a long
+   private static final double LONG_SAFE = 1L << 31;
+
+   private Predicates() {
+   }
+
+   /**
+    * Which side of the directed line a -> b is c on? The coordinates must be
+    * integers, as a site's are: the exact fallback truncates them to longs
+    *
+    * @return 1 if c is left of it (a, b, c counter clockwise), -1 if right and 0
+    *         if the three are on one line
+    */
+   static int orient(double ax, double ay, double bx, double by, double cx, double cy) {
+      double left = (bx - ax) * (cy - ay);
+      double right = (by - ay) * (cx - ax);
+      double det = left - right;
+      double bound = ORIENT_BOUND * (Math.abs(left) + Math.abs(right));
+      if (det > bound) {
+         return 1;
+      }
+      if (-det > bound) {
+         return -1;
+      }
+      return orientExact((long) ax, (long) ay, (long) bx, (long) by, (long) cx, (long) cy);
+   }
+
+   /**
+    * Which side of the directed line a -> b is site c on? See orient on
+    * coordinates
+    */
+   public static int orient(Point a, Point b, Point c) {
+      return orient(a.getX(), a.getY(), b.getX(), b.getY(), c.getX(), c.getY());
+   }
+
+   /**
+    * Is p on the closed segment a - b?
+    */
+   public static boolean onSegment(Point a, Point b, Point p) {
+      return orient(a, b, p) == 0
+            && Math.min(a.getX(), b.getX()) <= p.getX() && p.getX() <= Math.max(a.getX(), b.getX())
+            && Math.min(a.getY(), b.getY()) <= p.getY() && p.getY() <= Math.max(a.getY(), b.getY());
+   }
+
+   static int orientExact(long ax, long ay, long bx, long by, long cx, long cy) {
+      long abx = bx - ax, aby = by - ay;
+      long acx = cx - ax, acy = cy - ay;
+      if (Math.abs(abx) < LONG_SAFE && Math.abs(aby) < LONG_SAFE && Math.abs(acx) < LONG_SAFE
+            && Math.abs(acy) < LONG_SAFE) {
+         // each product is below 2^62, so neither they nor their difference overflow
+         return Long.signum(abx * acy - aby * acx);
+      }
+      BigInteger l = BigInteger.valueOf(abx).multiply(BigInteger.valueOf(acy));
+      BigInteger r = BigInteger.valueOf(aby).multiply(BigInteger.valueOf(acx));
+      return l.compareTo(r);
+   }
+
+   /**
+    * Sign of the determinant of the segments a -> b and c -> d: 1 if d - c
+    * turns left from b - a, -1 if right and 0 if they are parallel
+    */
+   public static int cross(Point a, Point b, Point c, Point d) {
+      double abx = b.getX() - a.getX(), aby = b.getY() - a.getY();
+      double cdx = d.getX() - c.getX(), cdy = d.getY() - c.getY();
+      double left = abx * cdy;
+      double right = aby * cdx;
+      double det = left - right;
+      double bound = ORIENT_BOUND * (Math.abs(left) + Math.abs(right));
+      if (det > bound) {
+         return 1;
+      }
+      if (-det > bound) {
+         return -1;
+      }
+      // same determinant as orient with a at the origin
+      return orientExact(0, 0, (long) abx, (long) aby, (long) cdx, (long) cdy);
+   }
+
+   /**
+    * Is d inside the circle through a, b and c?
+    *
+    * @return 1 if d is inside, -1 if outside and 0 if on the circle. Doesn't
+    *         depend on the order of a, b and c. 0 if they are on one line
+    */
+   public static int inCircle(Point a, Point b, Point c, Point d) {
+      int o = orient(a, b, c);
+      return o * inCircleCcw(a.getX(), a.getY(), b.getX(), b.getY(), c.getX(), c.getY(), d.getX(), d.getY());
+   }
+
+   /**
+    * The in-circle determinant: positive if d is inside the circle through a, b
+    * and c when those are counter clockwise, negative if outside. Integer
+    * coordinates only, like orient
+    */
+   static int inCircleCcw(double ax, double ay, double bx, double by, double cx, double cy, double dx,
+         double dy) {
+      double adx = ax - dx, ady = ay - dy;
+      double bdx = bx - dx, bdy = by - dy;
+      double cdx = cx - dx, cdy = cy - dy;
+
+      double bdxcdy = bdx * cdy, cdxbdy = cdx * bdy;
+      double alift = adx * adx + ady * ady;
+      double cdxady = cdx * ady, adxcdy = adx * cdy;
+      double blift = bdx * bdx + bdy * bdy;
+      double adxbdy = adx * bdy, bdxady = bdx * ady;
+      double clift = cdx * cdx + cdy * cdy;
+
+      double det = alift * (bdxcdy - cdxbdy) + blift * (cdxady - adxcdy) + clift * (adxbdy - bdxady);
+      double permanent = (Math.abs(bdxcdy) + Math.abs(cdxbdy)) * alift
+            + (Math.abs(cdxady) + Math.abs(adxcdy)) * blift
+            + (Math.abs(adxbdy) + Math.abs(bdxady)) * clift;
+      double bound = INCIRCLE_BOUND * permanent;
+      if (det > bound) {
+         return 1;
+      }
+      if (-det > bound) {
+         return -1;
+      }
+      return inCircleExact((long) adx, (long) ady, (long) bdx, (long) bdy, (long) cdx, (long) cdy);
+   }
+
+   // the terms reach the 4th power of the coordinates, more than a long holds
+   private static int inCircleExact(long adx, long ady, long bdx, long bdy, long cdx, long cdy) {
+      BigInteger ax = BigInteger.valueOf(adx), ay = BigInteger.valueOf(ady);
+      BigInteger bx = BigInteger.valueOf(bdx), by = BigInteger.valueOf(bdy);
+      BigInteger cx = BigInteger.valueOf(cdx), cy = BigInteger.valueOf(cdy);
+      BigInteger alift = ax.multiply(ax).add(ay.multiply(ay));
+      BigInteger blift = bx.multiply(bx).add(by.multiply(by));
+      BigInteger clift = cx.multiply(cx).add(cy.multiply(cy));
+      BigInteger det = alift.multiply(bx.multiply(cy).subtract(cx.multiply(by)))
+            .add(blift.multiply(cx.multiply(ay).subtract(ax.multiply(cy))))
+            .add(clift.multiply(ax.multiply(by).subtract(bx.multiply(ay))));
+      return det.signum();
+   }
+}
@@ -0,0 +1,74 @@
+package com.dslab.voronoi;
+
+import java.util.ArrayDeque;
+import java.util.Vector;
+
+/**
+ * A live diagram of the sites seen in the last window time units. Sites come
+ * in with a time stamp, in time order, and are deleted again once they are
+ * window older than the newest one. Both are local edits (DiagramEditor), the
+ * diagram is never swept again as a whole except while it has fewer than
+ * three sites.
+ */
+public class SlidingWindowDiagram {
+   private final long window;
+   private final Vector<Point> points = new Vector<>();
+   private final DiagramEditor editor;
+
+   // the live sites oldest first, and when each came in
+   private final ArrayDeque<Point> arrivals = new ArrayDeque<>();
+   private final ArrayDeque<Long> times = new ArrayDeque<>();
+
+   public SlidingWindowDiagram(int size_x, int size_y, long window) {
+      if (window <= 0) {
+         throw new IllegalArgumentException("window must be positive: " + window);
+      }
+      this.window = window;
+      editor = new DiagramEditor(size_x, size_y, points);
+   }
+
+   /**
+    * Expire everything older than time - window, then add p
+    *
+    * @return false if a live site is already at p
+    */
+   public boolean add(Point p, long time) {
+      if (!times.isEmpty() && time < times.peekLast()) {
+         throw new IllegalArgumentException("site at " + time + " is older than the last one at " + times.peekLast());
+      }
+      expire(time);
+      if (!editor.insert(p)) {
+         return false;
+      }
+      arrivals.add(p);
+      times.add(time);
+      return true;
+   }
+
+   /**
+    * Delete every site that came in at or before now - window
+    *
+    * @return how many were deleted
+    */
+   public int expire(long now) {
+      int gone = 0;
+      while (!times.isEmpty() && times.peek() <= now - window) {
+         times.poll();
+         editor.delete(arrivals.poll());
+         gone++;
+      }
+      return gone;
+   }
+
+   public int size() {
+      return points.size();
+   }
+
+   /**
+    * The live sites. Deleting a site moves the last one into its place, so
+    * these are in no particular order
+    */
+   public Vector<Point> getPoints() {
+      return points;
+   }
+}
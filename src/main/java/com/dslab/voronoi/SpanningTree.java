@@ -0,0 +1,166 @@
+package com.dslab.voronoi;
+
+import java.util.Arrays;
+import java.util.Vector;
+
+/**
+ * The Euclidean minimum spanning tree of a diagram's sites. The tree only
+ * uses Delaunay edges, which are the pairs of neighboring cells, so Kruskal's
+ * algorithm runs over the adjacency graph (CellAdjacency) instead of over all
+ * pairs: the edges are sorted by length and joined with a union-find over
+ * site indexes.
+ *
+ * Each edge is sorted as one long, the float of its squared length above its
+ * index, with Arrays.parallelSort. Floats round monotonically, so only edges
+ * whose lengths round to the same float can be out of order, and those runs
+ * are put right with the exact squared lengths afterwards. Sites on top of
+ * another have no cell and stay apart, making the tree a forest.
+ */
+public class SpanningTree {
+   private final int[] from;
+   private final int[] to;
+   private final double[] lengths;
+   private final int edges;
+   private final int components;
+   private final double total;
+
+   private SpanningTree(int[] from, int[] to, double[] lengths, int edges, int components, double total) {
+      this.from = from;
+      this.to = to;
+      this.lengths = lengths;
+      this.edges = edges;
+      this.components = components;
+      this.total = total;
+   }
+
+   /**
+    * Build the tree of a finished diagram, collecting the neighbor pairs with
+    * the given number of threads
+    *
+    * @param points the sites the diagram was built from
+    */
+   public static SpanningTree build(Vector<Point> points, int threads) {
+      int n = points.size();
+      CellAdjacency graph = CellAdjacency.build(points, false, threads);
+      double[] xs = new double[n];
+      double[] ys = new double[n];
+      for (int s = 0; s < n; s++) {
+         xs[s] = points.get(s).getX();
+         ys[s] = points.get(s).getY();
+      }
+
+      // every pair once, from its lower index
+      int pairs = graph.entryCount() / 2;
+      int[] a = new int[pairs];
+      int[] b = new int[pairs];
+      double[] squared = new double[pairs];
+      long[] order = new long[pairs];
+      int e = 0;
+      for (int s = 0; s < n; s++) {
+         for (int j = graph.first(s); j < graph.first(s + 1); j++) {
+            int t = graph.neighbor(j);
+            if (t > s) {
+               double dx = xs[t] - xs[s], dy = ys[t] - ys[s];
+               a[e] = s;
+               b[e] = t;
+               squared[e] = dx * dx + dy * dy;
+               order[e] = (long) Float.floatToIntBits((float) squared[e]) << 32 | e;
+               e++;
+            }
+         }
+      }
+      Arrays.parallelSort(order, 0, e);
+      exact(order, e, squared);
+
+      // union-find by size with path halving
+      int[] parent = new int[n];
+      int[] size = new int[n];
+      for (int s = 0; s < n; s++) {
+         parent[s] = s;
+         size[s] = 1;
+      }
+      int[] from = new int[Math.max(n - 1, 0)];
+      int[] to = new int[Math.max(n - 1, 0)];
+      double[] lengths = new double[Math.max(n - 1, 0)];
+      int taken = 0;
+      double total = 0;
+      for (int i = 0; i < e && taken < n - 1; i++) {
+         int k = (int) order[i];
+         int u = root(parent, a[k]), v = root(parent, b[k]);
+         if (u == v) {
+            continue;
+         }
+         if (size[u] < size[v]) {
+            int swap = u;
+            u = v;
+            v = swap;
+         }
+         parent[v] = u;
+         size[u] += size[v];
+         from[taken] = a[k];
+         to[taken] = b[k];
+         lengths[taken] = Math.sqrt(squared[k]);
+         total += lengths[taken];
+         taken++;
+      }
+      return new SpanningTree(from, to, lengths, taken, n - taken, total);
+   }
+
+   private static int root(int[] parent, int s) {
+      while (parent[s] != s) {
+         parent[s] = parent[parent[s]];
+         s = parent[s];
+      }
+      return s;
+   }
+
+   // sort each run of edges whose squared lengths round to the same float by
+   // the exact squared length, keeping the index order among true ties
+   private static void exact(long[] order, int count, double[] squared) {
+      int start = 0;
+      for (int i = 1; i <= count; i++) {
+         if (i < count && order[i] >>> 32 == order[start] >>> 32) {
+            continue;
+         }
+         for (int j = start + 1; j < i; j++) {
+            long key = order[j];
+            double d = squared[(int) key];
+            int k = j - 1;
+            while (k >= start && squared[(int) order[k]] > d) {
+               order[k + 1] = order[k];
+               k--;
+            }
+            order[k + 1] = key;
+         }
+         start = i;
+      }
+   }
+
+   // edges in the tree, the number of sites less the number of components
+   public int edgeCount() {
+      return edges;
+   }
+
+   // site index at one end of edge e. Edges are in the order they joined the
+   // tree, shortest first
+   public int from(int e) {
+      return from[e];
+   }
+
+   public int to(int e) {
+      return to[e];
+   }
+
+   public double length(int e) {
+      return lengths[e];
+   }
+
+   // 1 unless some sites sit on top of others
+   public int componentCount() {
+      return components;
+   }
+
+   public double getTotalLength() {
+      return total;
+   }
+}
@@ -0,0 +1,196 @@
+package com.dslab.voronoi;
+
+import java.awt.image.BufferedImage;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Queue;
+import java.util.Vector;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Renders a finished diagram into a z/x/y pyramid of PNG tiles for a map
+ * viewer, written as dir/z/x/y.png. Zoom 0 is one tile over the square around
+ * all sites and every zoom level splits each tile into four. Tile y grows
+ * downwards, like the diagram's y.
+ *
+ * Tiles are drawn in parallel by DiagramRenderer, each from an EdgeIndex query
+ * for just its own box (zoomed out tiles fall back to density shading), and
+ * written with PngEncoder. Every worker reuses one image and one encoder, and
+ * only a few tiles per worker are queued at a time, so memory beyond the index
+ * itself stays fixed however many tiles and edges there are. Tiles with nothing
+ * in them are not written.
+ */
+public class TileRenderer {
+   public static final int TILE = 256;
+
+   private final EdgeIndex index;
+   private final double minX;
+   private final double minY;
+   private final double extent;
+
+   /**
+    * What a run produced and how long it took
+    */
+   public static class Result {
+      private final long written;
+      private final long empty;
+      private final long nanos;
+
+      Result(long written, long empty, long nanos) {
+         this.written = written;
+         this.empty = empty;
+         this.nanos = nanos;
+      }
+
+      public long getWritten() {
+         return written;
+      }
+
+      // tiles left out because nothing was drawn on them
+      public long getEmpty() {
+         return empty;
+      }
+
+      public double getSeconds() {
+         return nanos / 1e9;
+      }
+
+      // tiles looked at (written or empty) per second
+      public double tilesPerSecond() {
+         return (written + empty) / Math.max(getSeconds(), 1e-9);
+      }
+   }
+
+   public TileRenderer(VoronoiDiagram diagram) {
+      this(diagram.getPoints());
+   }
+
+   public TileRenderer(Vector<Point> points) {
+      this(EdgeIndex.build(points));
+   }
+
+   public TileRenderer(EdgeIndex index) {
+      this.index = index;
+      double loX = Double.MAX_VALUE, loY = Double.MAX_VALUE;
+      double hiX = -Double.MAX_VALUE, hiY = -Double.MAX_VALUE;
+      for (int s = 0; s < index.siteCount(); s++) {
+         loX = Math.min(loX, index.siteX(s));
+         loY = Math.min(loY, index.siteY(s));
+         hiX = Math.max(hiX, index.siteX(s));
+         hiY = Math.max(hiY, index.siteY(s));
+      }
+      if (index.siteCount() == 0) {
+         loX = loY = hiX = hiY = 0;
+      }
+      // a little room around the outermost sites
+      double size = Math.max(Math.max(hiX - loX, hiY - loY), 1);
+      minX = loX - size / 64;
+      minY = loY - size / 64;
+      extent = size * 33 / 32;
+   }
+
+   /**
+    * Render zoom levels 0 to maxZoom into dir with the given number of threads
+    */
+   public Result render(Path dir, int maxZoom, int threads) throws IOException {
+      long start = System.nanoTime();
+      threads = Math.max(1, threads);
+      ExecutorService pool = Executors.newFixedThreadPool(threads);
+      // workers draw into their own image with their own renderer
+      ThreadLocal<BufferedImage> images = ThreadLocal.withInitial(() -> DiagramRenderer.newImage(TILE, TILE));
+      ThreadLocal<DiagramRenderer> renderers = ThreadLocal.withInitial(DiagramRenderer::new);
+      // every encoder handed out, closed once the workers are done
+      Queue<PngEncoder> opened = new ConcurrentLinkedQueue<>();
+      ThreadLocal<PngEncoder> encoders = ThreadLocal.withInitial(() -> {
+         PngEncoder encoder = new PngEncoder();
+         opened.add(encoder);
+         return encoder;
+      });
+      Semaphore queued = new Semaphore(threads * 4);
+      AtomicLong written = new AtomicLong();
+      AtomicLong empty = new AtomicLong();
+      AtomicReference<IOException> failure = new AtomicReference<>();
+      try {
+         for (int z = 0; z <= maxZoom && failure.get() == null; z++) {
+            int n = 1 << z;
+            double tileSize = extent / n;
+            for (int x = 0; x < n && failure.get() == null; x++) {
+               Path column = dir.resolve(Integer.toString(z)).resolve(Integer.toString(x));
+               for (int y = 0; y < n && failure.get() == null; y++) {
+                  double tileX = minX + x * tileSize;
+                  double tileY = minY + y * tileSize;
+                  if (isEmpty(tileX, tileY, tileSize)) {
+                     empty.incrementAndGet();
+                     continue;
+                  }
+                  int row = y;
+                  queued.acquire();
+                  pool.execute(() -> {
+                     try {
+                        BufferedImage img = images.get();
+                        double scale = TILE / tileSize;
+                        renderers.get().draw(index, img, -tileX * scale, -tileY * scale, scale);
+                        Files.createDirectories(column);
+                        try (OutputStream out = new BufferedOutputStream(
+                              Files.newOutputStream(column.resolve(row + ".png")))) {
+                           encoders.get().write(img, out);
+                        }
+                        written.incrementAndGet();
+                     } catch (IOException e) {
+                        failure.compareAndSet(null, e);
+                     } finally {
+                        queued.release();
+                     }
+                  });
+               }
+            }
+         }
+         pool.shutdown();
+         pool.awaitTermination(Long.MAX_VALUE, TimeUnit.DAYS);
+      } catch (InterruptedException e) {
+         Thread.currentThread().interrupt();
+         throw new IOException("interrupted while rendering tiles", e);
+      } finally {
+         pool.shutdownNow();
+         // a worker still writing a tile keeps using its encoder until it stops
+         boolean interrupted = Thread.interrupted();
+         try {
+            pool.awaitTermination(Long.MAX_VALUE, TimeUnit.DAYS);
+         } catch (InterruptedException e) {
+            interrupted = true;
+         }
+         for (PngEncoder encoder : opened) {
+            encoder.close();
+         }
+         if (interrupted) {
+            Thread.currentThread().interrupt();
+         }
+      }
+      if (failure.get() != null) {
+         throw failure.get();
+      }
+      return new Result(written.get(), empty.get(), System.nanoTime() - start);
+   }
+
+   // nothing to draw: no edge passes near the tile and no site is on it
+   private boolean isEmpty(double tileX, double tileY, double tileSize) {
+      if (index.estimate(tileX, tileY, tileX + tileSize, tileY + tileSize) > 0) {
+         return false;
+      }
+      for (int s = index.firstSiteAtOrAfter(tileX); s < index.siteCount() && index.siteX(s) <= tileX + tileSize; s++) {
+         if (index.siteY(s) >= tileY && index.siteY(s) <= tileY + tileSize) {
+            return false;
+         }
+      }
+      return true;
+   }
+}
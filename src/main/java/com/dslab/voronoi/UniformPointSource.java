@@ -0,0 +1,33 @@
+package com.dslab.voronoi;
+
+import java.util.Random;
+
+/**
+ * n distinct sites placed uniformly at random in a width x height grid. The
+ * sites are drawn as packed longs and sorted, duplicates end up next to each
+ * other where they are dropped and redrawn. Memory is one long per site until
+ * the points are handed out.
+ */
+public class UniformPointSource extends PackedPointSource {
+
+   public UniformPointSource(int n, int width, int height, long seed) {
+      super(draw(n, width, height, seed), n);
+   }
+
+   private static long[] draw(int n, int width, int height, long seed) {
+      if ((long) width * height < n) {
+         throw new IllegalArgumentException("cannot place " + n + " distinct points in " + width + " x " + height);
+      }
+      Random rand = new Random(seed);
+      long[] keys = new long[n];
+      int filled = 0;
+      while (filled < n) {
+         // the freed slots at the end are redrawn
+         for (int i = filled; i < n; i++) {
+            keys[i] = pack(rand.nextInt(width), rand.nextInt(height));
+         }
+         filled = sortUnique(keys, n);
+      }
+      return keys;
+   }
+}
@@ -5,33 +5,291 @@ import java.util.Vector;
 import org.locationtech.jts.algorithm.Angle;
 import org.locationtech.jts.geom.Coordinate;
 
+import java.util.Arrays;
 import java.util.Comparator;
-import java.util.HashSet;
 import java.util.PriorityQueue;
 import java.util.Stack;
-
-public class VoronoiDiagram {
-   private int size_x;
-   private int size_y;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Divide and conquer Voronoi diagram: the sites are split in x, both halves
+ * are built and the halves are stitched together along their dividing chain.
+ *
+ * The sites must have distinct x coordinates, one per column like
+ * ColumnPointSource: the halves are split in x and the stitch can't merge two
+ * halves that share a column. Use FortuneDiagram for other sites. Four or more
+ * sites on one circle may leave a zero length edge between two of them that a
+ * sweep would not report.
+ */
+public class VoronoiDiagram extends Diagram {
+   // finished subtrees are published here for a viewer, null if nobody watches
+   private DiagramSnapshots snapshots;
+   // ids for the lines this build makes, see StitchScratch
+   private final AtomicInteger lineIds = new AtomicInteger();
 
    private static final int RIGHT = 2;
    private static final int LEFT = 1;
 
+   // the merges build their bisectors this many times the diagram's size out.
+   // Nearly collinear sites, like neighboring columns, have voronoi vertices
+   // far outside the size, and bisectors cut off at the size leave edges that
+   // run on past where they end. The walks round the edge rings in stitch can't
+   // step over those. pullIn brings the unbounded ends back to the size
+   private static final int REACH = 100000;
+
+   // below this many sites a subtree is built sequentially instead of being forked
+   public static final int DEFAULT_CUTOFF = 4096;
+
    public VoronoiDiagram(int size_x, int size_y, Vector<Point> points) {
-      this.size_x = size_x;
-      this.size_y = size_y;
-      divide(size_x, size_y, points, 0, points.size() - 1);
+      this(size_x, size_y, points, (DiagramSnapshots) null);
+   }
+
+   /**
+    * Build the diagram, publishing finished subtrees to snapshots as it goes so
+    * a viewer can draw them without locking. The last snapshot is the whole
+    * diagram
+    */
+   public VoronoiDiagram(int size_x, int size_y, Vector<Point> points, DiagramSnapshots snapshots) {
+      super(size_x, size_y, points);
+      this.snapshots = snapshots;
+      divide(reach(size_x), reach(size_y), points, 0, points.size() - 1);
+      pullIn();
+      published();
+   }
+
+   /**
+    * Build the diagram from a stream of sorted sites. The source is read once
+    * into the diagram's own vector (see getPoints)
+    */
+   public VoronoiDiagram(int size_x, int size_y, PointSource source) {
+      this(size_x, size_y, source.toVector());
+   }
+
+   /**
+    * Build the diagram in parallel using a fork/join pool with the given number
+    * of worker threads. The pool is shut down once the diagram is complete.
+    * 
+    * @param threads number of worker threads (1 builds on a single worker)
+    */
+   public VoronoiDiagram(int size_x, int size_y, Vector<Point> points, int threads) {
+      this(size_x, size_y, points, threads, DEFAULT_CUTOFF);
+   }
+
+   public VoronoiDiagram(int size_x, int size_y, Vector<Point> points, int threads, int cutoff) {
+      this(size_x, size_y, points, threads, cutoff, null);
+   }
+
+   public VoronoiDiagram(int size_x, int size_y, Vector<Point> points, int threads, int cutoff,
+         DiagramSnapshots snapshots) {
+      super(size_x, size_y, points);
+      this.snapshots = snapshots;
+      ForkJoinPool pool = new ForkJoinPool(threads);
+      try {
+         pool.invoke(new DivideTask(points, 0, points.size() - 1, cutoff));
+      } finally {
+         pool.shutdown();
+      }
+      pullIn();
+      published();
+   }
+
+   /**
+    * Build the diagram in parallel on a caller supplied pool.
+    * 
+    * @param cutoff subtrees with this many sites or fewer are built sequentially
+    */
+   public VoronoiDiagram(int size_x, int size_y, Vector<Point> points, ForkJoinPool pool, int cutoff) {
+      this(size_x, size_y, points, pool, cutoff, null);
+   }
 
+   public VoronoiDiagram(int size_x, int size_y, Vector<Point> points, ForkJoinPool pool, int cutoff,
+         DiagramSnapshots snapshots) {
+      super(size_x, size_y, points);
+      this.snapshots = snapshots;
+      pool.invoke(new DivideTask(points, 0, points.size() - 1, cutoff));
+      pullIn();
+      published();
+   }
+
+   // how far out the bisectors of a build with this size reach
+   static double reach(int size) {
+      return (double) size * REACH;
+   }
+
+   // move the unbounded end of every finished edge from out at the merges'
+   // reach to where an edge made at the diagram's own size would end
+   private void pullIn() {
+      for (Point p : points) {
+         for (Line l : p.getLines()) {
+            if (l.getP0() != p || l.fullyBounded()) {
+               continue;
+            }
+            Coordinate src = l.getSrc(), end = l.getEnd();
+            if (l.isSrcBound()) {
+               l.setEndUnbounded(rayEnd(size_x, size_y, p, l.getP1(), src, end.x - src.x, end.y - src.y));
+            } else if (l.isEndBound()) {
+               l.setSrcUnbounded(rayEnd(size_x, size_y, p, l.getP1(), end, src.x - end.x, src.y - end.y));
+            } else {
+               // the whole bisector, the two sites are all there is
+               Line full = bisectorLine(size_x, size_y, p, l.getP1());
+               boolean same = (full.getX1() - full.getX0()) * (end.x - src.x)
+                     + (full.getY1() - full.getY0()) * (end.y - src.y) > 0;
+               l.setSrcUnbounded(same ? full.getSrc() : full.getEnd());
+               l.setEndUnbounded(same ? full.getEnd() : full.getSrc());
+            }
+         }
+      }
    }
 
-   ConvexHull divide(int size_x, int size_y, Vector<Point> points, int lower, int upper) {
+   // hand the finished diagram to the viewer, if there is one
+   private void published() {
+      if (snapshots != null && !points.isEmpty()) {
+         snapshots.publish(points, 0, points.size() - 1);
+      }
+   }
+
+   // scratch space for the stitch loop. one per thread so parallel stitches don't
+   // share it
+   private static class StitchScratch {
+      final IntersectionResult its1 = new IntersectionResult();
+      final IntersectionResult its2 = new IntersectionResult();
+      final IntersectionResult temp = new IntersectionResult();
+      final IntersectionHistory history = new IntersectionHistory();
+      final IdSet seenLines = new IdSet();
+      // the edges the merge adds, bottom to top, and the lines either side
+      // that may have to go once the chain is done
+      final Vector<Line> stitch = new Vector<>();
+      final PriorityQueue<Line> leftRemoved = new PriorityQueue<>(BY_UPPER_Y);
+      final PriorityQueue<Line> rightRemoved = new PriorityQueue<>(BY_UPPER_Y);
+      // the bisector each step searches with, made again from the next two
+      // sites every step. Its unbounded ends are these two coordinates
+      final Line search = new Line(0, 0, 0, 0);
+      final Coordinate from = new Coordinate();
+      final Coordinate to = new Coordinate();
+      // the new edges the current left and right sites take
+      final Run leftRun = new Run();
+      final Run rightRun = new Run();
+      // a block of line ids taken from the counter of the diagram being built,
+      // so the threads of one build rarely meet on it
+      AtomicInteger idSource;
+      int nextId;
+      int idLimit;
+   }
+
+   // a site and the run of new edges it takes in a row, handed to it in one
+   // insertLines call once the next site's edges start
+   private static class Run {
+      Point site;
+      Line[] lines = new Line[16];
+      int size;
+
+      void add(Point p, Line edge) {
+         if (p != site) {
+            flush();
+            site = p;
+         }
+         if (size == lines.length) {
+            lines = Arrays.copyOf(lines, size * 2);
+         }
+         lines[size++] = edge;
+      }
+
+      void flush() {
+         if (size > 0) {
+            site.insertLines(lines, size);
+            Arrays.fill(lines, 0, size, null);
+         }
+         site = null;
+         size = 0;
+      }
+   }
+
+   private static final ThreadLocal<StitchScratch> SCRATCH = ThreadLocal.withInitial(StitchScratch::new);
+
+   // lines removed by a merge come off lowest upper y first
+   private static final Comparator<Line> BY_UPPER_Y = Comparator.comparingDouble(Line::getUpperY);
+
+   // line ids a thread takes from the counter at a time
+   private static final int ID_BLOCK = 1024;
+
+   private int nextLineId(StitchScratch scratch) {
+      if (scratch.idSource != lineIds || scratch.nextId == scratch.idLimit) {
+         scratch.idSource = lineIds;
+         scratch.nextId = lineIds.getAndAdd(ID_BLOCK);
+         scratch.idLimit = scratch.nextId + ID_BLOCK;
+      }
+      return scratch.nextId++;
+   }
+
+   // bisectorLine with an id from this diagram's counter
+   private Line bisector(Point p1, Point p2, StitchScratch scratch) {
+      Line line = bisectorLine(reach(size_x), reach(size_y), p1, p2);
+      line.setId(nextLineId(scratch));
+      return line;
+   }
+
+   // the edge a stitch step found, taken off the search line. Bound ends are
+   // the shared vertices, unbounded ones are copied out of the scratch
+   private Line edge(Line search, StitchScratch scratch) {
+      Coordinate src = search.getSrc(), end = search.getEnd();
+      Line line = new Line(search.isSrcBound() ? src : new Coordinate(src), search.isSrcBound(),
+            search.isEndBound() ? end : new Coordinate(end), search.isEndBound(), search.getP0(), search.getP1());
+      line.setId(nextLineId(scratch));
+      return line;
+   }
+
+   /**
+    * Parallel variant of divide. The two halves [lower, mid-1] and [mid, upper]
+    * are disjoint sets of sites, and every Line a subtree creates is owned by
+    * sites inside that subtree. A stitch only ever follows lines owned by the two
+    * hulls it merges, so forked subtrees never touch the same Point or Line and
+    * need no locking. The join before each stitch publishes the halves' edges to
+    * the stitching thread. Halves are split at the same mid as divide, so the
+    * merge order (and the resulting edges) is identical to the sequential path.
+    */
+   private class DivideTask extends RecursiveTask<ConvexHull> {
+      private final Vector<Point> points;
+      private final int lower;
+      private final int upper;
+      private final int cutoff;
+
+      DivideTask(Vector<Point> points, int lower, int upper, int cutoff) {
+         this.points = points;
+         this.lower = lower;
+         this.upper = upper;
+         this.cutoff = cutoff;
+      }
+
+      @Override
+      protected ConvexHull compute() {
+         int size = upper - lower + 1;
+         if (size <= Math.max(cutoff, 2)) {
+            return divide(reach(size_x), reach(size_y), points, lower, upper);
+         }
+         int mid = lower + size / 2;
+         DivideTask left = new DivideTask(points, lower, mid - 1, cutoff);
+         DivideTask right = new DivideTask(points, mid, upper, cutoff);
+         left.fork();
+         ConvexHull rightConvexHull = right.compute();
+         ConvexHull leftConvexHull = left.join();
+         ConvexHull hull = stitch(reach(size_x), reach(size_y), points, leftConvexHull, rightConvexHull);
+         subtreeDone(lower, upper);
+         return hull;
+      }
+   }
+
+   ConvexHull divide(double size_x, double size_y, Vector<Point> points, int lower, int upper) {
       int size = upper - lower + 1; // + 1 because converting last index to size?
 
       if (size > 2) {
          int mid = lower + size / 2;
          ConvexHull leftConvexHull = divide(size_x, size_y, points, lower, mid - 1);
          ConvexHull rightConvexHull = divide(size_x, size_y, points, mid, upper);
-         return stitch(size_x, size_y, points, leftConvexHull, rightConvexHull);
+         ConvexHull hull = stitch(size_x, size_y, points, leftConvexHull, rightConvexHull);
+         subtreeDone(lower, upper);
+         return hull;
          // if we comput convex hull to reduce time complexity, could do it after we get
          // each ConvexHull. Take right convex hull of left ConvexHull and left CV of
          // right
@@ -43,7 +301,7 @@ public class VoronoiDiagram {
             Point p0 = points.elementAt(lower);
             Point p1 = points.elementAt(upper);
 
-            Line bisector = bisectorLine(size_x, size_y, p0, p1);
+            Line bisector = bisector(p0, p1, SCRATCH.get());
 
             // lower point always gets the new line
 
@@ -60,58 +318,103 @@ public class VoronoiDiagram {
       return new ConvexHull(points.elementAt(lower));
    }
 
-   // check the newest line for this point for an intersection
-   // if point has no line or no intersection found then return null
-   private double[] findItx(Point p0, Line bisector, Coordinate srcPoint,
-         Line lastBisectedLine) {
-      double[] itx = null;
-      double dist = Double.MAX_VALUE;
-      int i = 0;
-      for (Line line : p0.getLines()) {
+   // the sites [lower, upper] are stitched and won't change until their parent's
+   // stitch, which runs on this thread or after a join. A safe point to snapshot
+   private void subtreeDone(int lower, int upper) {
+      if (snapshots != null) {
+         snapshots.subtreeDone(points, lower, upper);
+      }
+   }
 
-         Coordinate temp = line.intersects(bisector);
-         if (temp != null && line != lastBisectedLine) {
-            double distTemp = temp.distance(srcPoint);
+   // ring position of the first of p's edges past the direction toward other,
+   // going counter clockwise (dir 1) or clockwise (dir -1)
+   private static int past(Point p, Point other, int dir) {
+      int g = p.ringIndexToward(other);
+      return (dir == 1) ? g : g - 1;
+   }
 
-            if (distTemp < dist) {
-               itx = new double[3];
-               itx[0] = temp.getX();
-               itx[1] = temp.getY();
-               itx[2] = i;
-               dist = distTemp;
+   private static Point other(Line l, Point p) {
+      return (l.getP0() == p) ? l.getP1() : l.getP0();
+   }
 
+   // check the newest line for this point for an intersection
+   // if point has no line or no intersection found then return false. The
+   // closest intersection is written into itx
+   // The cell boundary is walked from ring position start going round dir (1
+   // counter clockwise, -1 clockwise) and the walk stops at the first line
+   // past the crossing that misses, so only lines meeting the crossing at a
+   // vertex are compared with it
+   private boolean findItx(Point p0, Line bisector, Coordinate srcPoint, Line lastBisectedLine, int start, int dir,
+         IntersectionResult itx, IntersectionResult temp, IntersectionHistory history) {
+      itx.clear();
+      double dist = Double.MAX_VALUE;
+      Stack<Line> lines = p0.getLines();
+      int size = lines.size();
+      for (int k = 0; k < size; k++) {
+         int i = Math.floorMod(start + k * dir, size);
+         Line line = lines.get(i);
+
+         if (!line.intersects(bisector, temp, history) || line == lastBisectedLine) {
+            if (itx.found) {
+               break;
+            }
+            continue;
+         }
+         double distTemp = temp.distance(srcPoint.x, srcPoint.y);
+         boolean closer = distTemp < dist;
+         // the bisector is first cut by the edge whose other site is inside the
+         // circle through the bisector's sites and the other candidate. decided
+         // exactly on the sites, the distance only breaks ties
+         if (itx.found) {
+            int inside = Predicates.inCircle(bisector.getP0(), bisector.getP1(), other(lines.get(itx.index), p0),
+                  other(line, p0));
+            if (inside != 0) {
+               closer = inside > 0;
             }
          }
 
-         i++;
+         if (closer) {
+            itx.set(temp.x, temp.y, i);
+            dist = distTemp;
+
+         }
       }
 
-      return itx;
+      return itx.found;
    }
 
    // p1 is left, p2 is right ALWAYS
-   private static Line bisectorLine(int size_x, int size_y, Point p1, Point p2) {
+   static Line bisectorLine(double size_x, double size_y, Point p1, Point p2) {
+      Coordinate a = new Coordinate(), b = new Coordinate();
+      bisect(size_x, size_y, p1, p2, a, b);
+      return new Line(a, false, b, false, p1, p2);
+   }
+
+   // the ends of bisectorLine written into a and b instead of a new Line
+   static void bisect(double size_x, double size_y, Point p1, Point p2, Coordinate a, Coordinate b) {
 
-      Coordinate midPoint = p1.midPoint(p2);
+      double midX = (p1.getX() + p2.getX()) / 2.0;
+      double midY = (p1.getY() + p2.getY()) / 2.0;
 
       double perpendicular_slope = -1.0 * ((double) p2.getX() - p1.getX()) / ((double) p2.getY() - p1.getY());
 
       if (Double.isInfinite(perpendicular_slope)) { // line is vertical
-         return new Line(midPoint.getX(), -1 * size_y, midPoint.getX(), size_y, p1, p2);
-
+         ends(a, b, midX, -1 * size_y, midX, size_y);
+         return;
       }
       if (Math.abs(p1.getX() - p2.getX()) < 0.1) {
          perpendicular_slope = 0;
       }
       if (perpendicular_slope < 0.00001 && perpendicular_slope > -0.00001) {
          if (p2.above(p1)) { // right above left.. the line is traveling to left
-            return new Line(size_x, midPoint.getY(), -1 * size_x, midPoint.getY(), p1, p2);
+            ends(a, b, size_x, midY, -1 * size_x, midY);
          } else {
-            return new Line(-1 * size_x, midPoint.getY(), size_x, midPoint.getY(), p1, p2);
+            ends(a, b, -1 * size_x, midY, size_x, midY);
          }
+         return;
       }
 
-      double intersect = midPoint.getY() - perpendicular_slope * midPoint.getX();
+      double intersect = midY - perpendicular_slope * midX;
 
       // generate a bisector line
       // compute x1, y1
@@ -121,61 +424,93 @@ public class VoronoiDiagram {
       double x2 = size_x;
       double y2 = perpendicular_slope * x2 + intersect;
       if (y1 < y2) {
-         return new Line(x1, y1, x2, y2, p1, p2);
+         ends(a, b, x1, y1, x2, y2);
       } else {
-         return new Line(x2, y2, x1, y1, p1, p2);
+         ends(a, b, x2, y2, x1, y1);
       }
 
    }
 
+   private static void ends(Coordinate a, Coordinate b, double x1, double y1, double x2, double y2) {
+      a.x = x1;
+      a.y = y1;
+      b.x = x2;
+      b.y = y2;
+   }
+
+   /**
+    * Where an edge between left and right going off from vertex in direction
+    * (dx, dy) stops: the end of their full bisector on that side, where
+    * bisectorLine puts it
+    */
+   static Coordinate rayEnd(int size_x, int size_y, Point left, Point right, Coordinate vertex, double dx,
+         double dy) {
+      Line full = bisectorLine(size_x, size_y, left, right);
+      Coordinate p = full.getSrc(), q = full.getEnd();
+      double dotP = (p.x - vertex.x) * dx + (p.y - vertex.y) * dy;
+      double dotQ = (q.x - vertex.x) * dx + (q.y - vertex.y) * dy;
+      if (Math.max(dotP, dotQ) > 0) {
+         return new Coordinate((dotP > dotQ) ? p : q);
+      }
+      // the vertex is outside the extent already
+      double k = Math.hypot(size_x, size_y) / Math.hypot(dx, dy);
+      return new Coordinate(vertex.x + dx * k, vertex.y + dy * k);
+   }
+
    // This does not handle case when starting bridge creates a bisector with slope
    // of 0! (need to determine if left side is above or below right side to
    // determine what direction to look for intersections then)
-   public double[] findLowestIntersection(Point p, Line bisector) {
+   // the ring is walked from start going round dir as in findItx
+   public boolean findLowestIntersection(Point p, Line bisector, int start, int dir, IntersectionResult res,
+         IntersectionResult temp, IntersectionHistory history) {
       double yVal = Double.POSITIVE_INFINITY;
-      double[] res = null;
-      for (int i = 0; i < p.getLines().size(); i++) {
-         Line line = p.getLines().get(i);
-         Coordinate itx = line.intersects(bisector);
-         if (itx != null) {
-            if (itx.getY() < yVal) {
-               yVal = itx.getY();
-               res = new double[3];
-               res[0] = itx.getX();
-               res[1] = itx.getY();
-               res[2] = i;
+      res.clear();
+      Stack<Line> lines = p.getLines();
+      int size = lines.size();
+      for (int k = 0; k < size; k++) {
+         int i = Math.floorMod(start + k * dir, size);
+         Line line = lines.get(i);
+         if (line.intersects(bisector, temp, history)) {
+            if (temp.y < yVal) {
+               yVal = temp.y;
+               res.set(temp.x, temp.y, i);
             }
+         } else if (res.found) {
+            break;
          }
       }
-      return res;
+      return res.found;
 
    }
 
    // if dir is LEFT, right lefmost intersection. If RIGHT, rightmost
-   public double[] findLeftRightMostIntersection(Point p, Line bisector, int dir) {
+   // the ring is walked from start going round turn as in findItx
+   public boolean findLeftRightMostIntersection(Point p, Line bisector, int dir, int start, int turn,
+         IntersectionResult res, IntersectionResult temp, IntersectionHistory history) {
       double xVal = Double.NEGATIVE_INFINITY;
       if (dir == LEFT) {
          xVal = Double.POSITIVE_INFINITY;
       }
-      double[] res = null;
-      for (int i = 0; i < p.getLines().size(); i++) {
-         Line line = p.getLines().get(i);
-         Coordinate itx = line.intersects(bisector);
-         if (itx != null) {
-            if ((itx.getX() > xVal && dir == RIGHT) || (itx.getX() < xVal && dir == LEFT)) {
-               xVal = itx.getX();
-               res = new double[3];
-               res[0] = itx.getX();
-               res[1] = itx.getY();
-               res[2] = i;
+      res.clear();
+      Stack<Line> lines = p.getLines();
+      int size = lines.size();
+      for (int k = 0; k < size; k++) {
+         int i = Math.floorMod(start + k * turn, size);
+         Line line = lines.get(i);
+         if (line.intersects(bisector, temp, history)) {
+            if ((temp.x > xVal && dir == RIGHT) || (temp.x < xVal && dir == LEFT)) {
+               xVal = temp.x;
+               res.set(temp.x, temp.y, i);
             }
+         } else if (res.found) {
+            break;
          }
       }
-      return res;
+      return res.found;
 
    }
 
-   private ConvexHull stitch(int size_x, int size_y, Vector<Point> points,
+   ConvexHull stitch(double size_x, double size_y, Vector<Point> points,
          ConvexHull leftConvexHull, ConvexHull rightConvexHull) {
 
       // we need to run a convex hull merge algorithm to find the starting and ending
@@ -197,10 +532,9 @@ public class VoronoiDiagram {
 
       Line lastBisectedLine = null;
 
-      HashSet<Line> seenLines = new HashSet<>();
-      Vector<Point> seenPoints = new Vector<>();
-      seenPoints.add(p0);
-      seenPoints.add(p1);
+      // reused between merges, cleared when this one is done
+      StitchScratch scratch = SCRATCH.get();
+      IdSet seenLines = scratch.seenLines;
       Point upperLeftBridge = p0;
       Point upperRightBridge = p1;
 
@@ -213,16 +547,32 @@ public class VoronoiDiagram {
          upperRightBridge = rightBridge.remove(0);
       }
 
-      Vector<Line> stitch = new Vector<>();
+      Vector<Line> stitch = scratch.stitch;
       // order removed lines from lowest upper Y value to highest
-      PriorityQueue<Line> leftRemovedLines = new PriorityQueue<Line>(Comparator.comparing(Line::getUpperY));
-      PriorityQueue<Line> rightRemovedLines = new PriorityQueue<Line>(Comparator.comparing(Line::getUpperY));
+      PriorityQueue<Line> leftRemovedLines = scratch.leftRemoved;
+      PriorityQueue<Line> rightRemovedLines = scratch.rightRemoved;
+
+      // reused on every step so the loop does not allocate search results
+      IntersectionResult its1 = scratch.its1;
+      IntersectionResult its2 = scratch.its2;
+      IntersectionHistory history = scratch.history;
+      history.begin();
+
+      // the stitch cuts off the east side of the left cells and the west side
+      // of the right ones. Going up, those sides run counter clockwise round
+      // left sites and clockwise round right ones, so each search walks on
+      // from where the last one on its side got to, and the edges a site loses
+      // are the run of its ring between where the stitch enters and leaves.
+      // first is where that run starts, at where the next search starts
+      int leftFirst = past(p0, p1, 1), leftAt = leftFirst;
+      int rightFirst = past(p1, p0, -1), rightAt = rightFirst;
 
       do {
-         // 1. get a bisector line between them.
-         Line bisector = bisectorLine(size_x, size_y, p0, p1);
-         // no longer necessary cuz of stitching
-         seenLines.add(bisector);
+         // 1. get a bisector line between them. The search runs on the scratch
+         // line, the edge is only made once the step knows where it ends
+         Line bisector = scratch.search;
+         bisect(size_x, size_y, p0, p1, scratch.from, scratch.to);
+         bisector.reset(scratch.from, scratch.to, p0, p1);
          boolean isStartingStitch = false;
          Line l = null;
          boolean cutFromLeft = false;
@@ -239,10 +589,7 @@ public class VoronoiDiagram {
                                                                 // infinity
 
             bisector.setSrc(srcPoint);
-            stitch.add(bisector);
-
-            p0.insertLine(bisector);
-            p1.insertLine(bisector);
+            stitch.add(edge(bisector, scratch));
             break;
          } else if (p0 == bottomLeftBridge && p1 == bottomRightBridge) { // we are starting. line starts at negative
                                                                          // infinity
@@ -264,132 +611,96 @@ public class VoronoiDiagram {
 
          // 3. compute the intersect with the bottom voronoi edges.
          if (!isStartingStitch) {
-            double[] its1 = findItx(p0, bisector, srcPoint, lastBisectedLine);
-            double[] its2 = findItx(p1, bisector, srcPoint, lastBisectedLine);
+            boolean found1 = findItx(p0, bisector, srcPoint, lastBisectedLine, leftAt, 1, its1, scratch.temp,
+                  history);
+            boolean found2 = findItx(p1, bisector, srcPoint, lastBisectedLine, rightAt, -1, its2, scratch.temp,
+                  history);
 
-            if (its1 == null && its2 == null) { // RARE CASE when all points exist on same line
+            if (!found1 && !found2) { // RARE CASE when all points exist on same line
                System.err.println("No intersections FOUND before exiting top bridge.\n"
                      + " Either all the lines are parallel or this is an error!");
-               stitch.add(bisector);
-
-               p0.insertLine(bisector);
-               p1.insertLine(bisector);
+               stitch.add(edge(bisector, scratch));
                break;
             }
 
             // 4. find which of the two intersects with the bisector line is closer to the
             // source point
-            double dist1 = (its1 != null) ? srcPoint.distance(new Coordinate(its1[0], its1[1])) : Double.MAX_VALUE;
-            double dist2 = (its2 != null) ? srcPoint.distance(new Coordinate(its2[0], its2[1])) : Double.MAX_VALUE;
-
-            double endX = (dist1 < dist2) ? its1[0] : its2[0];
-            double endY = (dist1 < dist2) ? its1[1] : its2[1];
-
-            endPoint = new Coordinate(endX, endY);
-
-            if (dist1 < dist2) {
-               l = p0.getLines().elementAt((int) its1[2]);
-               cutFromLeft = true;
-            } else {
-               l = p1.getLines().elementAt((int) its2[2]);
+            double dist1 = found1 ? its1.distance(srcPoint.x, srcPoint.y) : Double.MAX_VALUE;
+            double dist2 = found2 ? its2.distance(srcPoint.x, srcPoint.y) : Double.MAX_VALUE;
+            boolean left = dist1 < dist2;
+            // same choice from the sites: the left cut comes first if the site
+            // across it is outside the circle through p0, p1 and the site across
+            // the right one
+            if (found1 && found2) {
+               Point q1 = other(p0.getLines().elementAt(its1.index), p0);
+               Point q2 = other(p1.getLines().elementAt(its2.index), p1);
+               int inside = Predicates.inCircle(p0, p1, q1, q2);
+               if (inside != 0 && Predicates.orient(p0, p1, q1) != 0) {
+                  left = inside < 0;
+               }
             }
 
+            cutFromLeft = left;
+
          } else {
             if (bisector.isHorizontal()) {
                // cant find lowest intersection. ned to see which point is above. if left point
                // is above right point then we find the rightmost intersection and vice versa
                if (p0.above(p1)) {
-                  double[] itx1 = findLeftRightMostIntersection(p0, bisector, RIGHT);
-                  double[] itx2 = findLeftRightMostIntersection(p1, bisector, RIGHT);
+                  boolean found1 = findLeftRightMostIntersection(p0, bisector, RIGHT, leftAt, 1, its1, scratch.temp,
+                        history);
+                  boolean found2 = findLeftRightMostIntersection(p1, bisector, RIGHT, rightAt, -1, its2, scratch.temp,
+                        history);
 
-                  if (itx1 == null && itx2 == null) { // RARE CASE when all points exist on same line
+                  if (!found1 && !found2) { // RARE CASE when all points exist on same line
                      System.err.println("No intersections FOUND before exiting top bridge.\n"
                            + " Either all the lines are parallel or this is an error!");
-                     stitch.add(bisector);
-
-                     p0.insertLine(bisector);
-                     p1.insertLine(bisector);
+                     stitch.add(edge(bisector, scratch));
                      break;
-                  } else if (itx1 == null) {
-                     l = p1.getLines().get((int) itx2[2]);
-                     endPoint = new Coordinate(itx2[0], itx2[1]);
-                  } else if (itx2 == null) {
-                     l = p0.getLines().get((int) itx1[2]);
-                     endPoint = new Coordinate(itx1[0], itx1[1]);
-                     cutFromLeft = true;
-                  } else if (itx1[0] > itx2[0]) {
-                     l = p0.getLines().get((int) itx1[2]);
-                     endPoint = new Coordinate(itx1[0], itx1[1]);
-                     cutFromLeft = true;
-                  } else {
-                     l = p1.getLines().get((int) itx2[2]);
-                     endPoint = new Coordinate(itx2[0], itx2[1]);
                   }
+                  cutFromLeft = !found2 || (found1 && its1.x > its2.x);
                } else {
-                  double[] itx1 = findLeftRightMostIntersection(p0, bisector, LEFT);
-                  double[] itx2 = findLeftRightMostIntersection(p1, bisector, LEFT);
-                  if (itx1 == null && itx2 == null) { // RARE CASE when all points exist on same line
+                  boolean found1 = findLeftRightMostIntersection(p0, bisector, LEFT, leftAt, 1, its1, scratch.temp,
+                        history);
+                  boolean found2 = findLeftRightMostIntersection(p1, bisector, LEFT, rightAt, -1, its2, scratch.temp,
+                        history);
+                  if (!found1 && !found2) { // RARE CASE when all points exist on same line
                      System.err.println("No intersections FOUND before exiting top bridge.\n"
                            + " Either all the lines are parallel or this is an error!");
-                     p0.insertLine(bisector);
-                     p1.insertLine(bisector);
-                     stitch.add(bisector);
-
+                     stitch.add(edge(bisector, scratch));
                      break;
-                  } else if (itx1 == null) {
-                     l = p1.getLines().get((int) itx2[2]);
-                     endPoint = new Coordinate(itx2[0], itx2[1]);
-                  } else if (itx2 == null) {
-                     l = p0.getLines().get((int) itx1[2]);
-                     endPoint = new Coordinate(itx1[0], itx1[1]);
-                     cutFromLeft = true;
-                  } else if (itx1[0] < itx2[0]) {
-                     l = p0.getLines().get((int) itx1[2]);
-                     endPoint = new Coordinate(itx1[0], itx1[1]);
-                     cutFromLeft = true;
-                  } else {
-                     l = p1.getLines().get((int) itx2[2]);
-                     endPoint = new Coordinate(itx2[0], itx2[1]);
                   }
+                  cutFromLeft = !found2 || (found1 && its1.x < its2.x);
 
                }
 
             } else {
-               double[] itx1 = findLowestIntersection(p0, bisector);
-               double[] itx2 = findLowestIntersection(p1, bisector);
+               boolean found1 = findLowestIntersection(p0, bisector, leftAt, 1, its1, scratch.temp, history);
+               boolean found2 = findLowestIntersection(p1, bisector, rightAt, -1, its2, scratch.temp, history);
 
-               if (itx1 == null && itx2 == null) { // RARE CASE when all points exist on same line
+               if (!found1 && !found2) { // RARE CASE when all points exist on same line
                   System.err.println("No intersections FOUND before exiting top bridge.\n"
                         + " Either all the lines are parallel or this is an error!");
-                  p0.insertLine(bisector);
-                  p1.insertLine(bisector);
-                  stitch.add(bisector);
-
+                  stitch.add(edge(bisector, scratch));
                   break;
-               } else if (itx1 == null) {
-                  l = p1.getLines().get((int) itx2[2]);
-                  endPoint = new Coordinate(itx2[0], itx2[1]);
-               } else if (itx2 == null) {
-                  l = p0.getLines().get((int) itx1[2]);
-                  endPoint = new Coordinate(itx1[0], itx1[1]);
-                  cutFromLeft = true;
-               } else if (itx1[1] < itx2[1]) {
-                  l = p0.getLines().get((int) itx1[2]);
-                  endPoint = new Coordinate(itx1[0], itx1[1]);
-                  cutFromLeft = true;
-               } else {
-                  l = p1.getLines().get((int) itx2[2]);
-                  endPoint = new Coordinate(itx2[0], itx2[1]);
                }
+               cutFromLeft = !found2 || (found1 && its1.y < its2.y);
             }
 
          }
 
+         IntersectionResult cut = cutFromLeft ? its1 : its2;
+         l = (cutFromLeft ? p0 : p1).getLines().get(cut.index);
+         // the vertex this step ends at. It is the one record every edge meeting
+         // there shares, so it is the only coordinate a step makes
+         endPoint = new Coordinate(cut.x, cut.y);
+
          // 6. add any edges that may get trimmed or deleted by this stitch line.
          // when the stitch line is complete, then we will look at all of these
          // candidates and determine if they should be deleted.
          // cut off bisector line at intersection
          bisector.setEnd(endPoint);
+         Line edge = edge(bisector, scratch);
 
          // When we intersect multiple lines at the same spot. it takes multiple steps to
          // do so. Thus, multiple bisectors of length 0 end up getting created. To fix
@@ -399,25 +710,22 @@ public class VoronoiDiagram {
 
          if (cutFromLeft) {
 
-            trim(l, bisector, endPoint, 2, leftRemovedLines);
+            trim(l, edge, endPoint, 2);
+            p0.edgesBetween(leftFirst, cut.index, 1, leftRemovedLines);
          } else {
 
-            trim(l, bisector, endPoint, 1, rightRemovedLines);
+            trim(l, edge, endPoint, 1);
+            p1.edgesBetween(rightFirst, cut.index, -1, rightRemovedLines);
          }
-         // give the new line to both points that share it
-
-         p0.addStitch(bisector);
-
-         p1.addStitch(bisector);
 
          // track the stitchings
-         stitch.add(bisector);
+         stitch.add(edge);
 
          // 7. choose the next point from the same side that keeps the last voronoi edge
          // this point should be bisected by the line last intersected
          if (cutFromLeft) {
 
-            seenLines.add(l);
+            seenLines.add(l.getId());
             lastBisectedLine = l;
             if (l.getP0() != p0) {
                p0 = l.getP0();
@@ -426,11 +734,15 @@ public class VoronoiDiagram {
                p0 = l.getP1();
 
             }
-            seenPoints.add(p0);
+            leftAt = p0.indexOf(l);
+            leftFirst = leftAt + 1;
+            if (its2.found) {
+               rightAt = its2.index;
+            }
 
          } else {
 
-            seenLines.add(l);
+            seenLines.add(l.getId());
             lastBisectedLine = l;
             if (l.getP1() != p1) {
                p1 = l.getP1();
@@ -439,27 +751,47 @@ public class VoronoiDiagram {
                p1 = l.getP0();
 
             }
-            seenPoints.add(p1);
+            rightAt = p1.indexOf(l);
+            rightFirst = rightAt - 1;
+            if (its1.found) {
+               leftAt = its1.index;
+            }
 
          }
 
       } while (true);
 
+      // the last edge goes off to infinity between the last two sites, which
+      // lose their edges up to where it goes in their rings
+      p0.edgesBetween(leftFirst, past(p0, p1, 1), 1, leftRemovedLines);
+      p1.edgesBetween(rightFirst, past(p1, p0, -1), -1, rightRemovedLines);
+
       // delete any lines from right side to the left of the stitch
       checkForRemoval(stitch, leftRemovedLines, 2, seenLines);
       checkForRemoval(stitch, rightRemovedLines, 1, seenLines);
 
-      for (Point p : seenPoints) {
-         p.applyStitching(stitch);
+      // give the new edges to both points that share them. Only now, so the
+      // searches above only ever saw the two halves' edges. A site's edges
+      // follow one another up the stitch and go into its ring together. The
+      // top edge goes in first, ahead of the rest, as it always has
+      int top = stitch.size() - 1;
+      for (int i = -1; i < top; i++) {
+         Line edge = stitch.get((i < 0) ? top : i);
+         scratch.leftRun.add(edge.getP0(), edge);
+         scratch.rightRun.add(edge.getP1(), edge);
       }
+      scratch.leftRun.flush();
+      scratch.rightRun.flush();
+      stitch.clear();
+      seenLines.clear();
 
       return leftConvexHull;
    }
 
    // remove all lines in removedLines to the <right|left> of the stitch
    // right = 2. left = 1
-   private void checkForRemoval(Vector<Line> stitching, PriorityQueue<Line> removedLines, int direction,
-         HashSet<Line> seenLines) {
+   static void checkForRemoval(Vector<Line> stitching, PriorityQueue<Line> removedLines, int direction,
+         IdSet seenLines) {
 
       Line candidate, stitch;
       int stitchIndex = 0;
@@ -467,7 +799,7 @@ public class VoronoiDiagram {
          candidate = removedLines.poll();
          // if we saw the line that means it was intersected by a stitch and was already
          // taken care of
-         if (seenLines.contains(candidate)) {
+         if (seenLines.contains(candidate.getId())) {
             continue;
          }
          stitch = stitching.get(stitchIndex);
@@ -484,10 +816,10 @@ public class VoronoiDiagram {
          // TODO: isrightOf() and isLeftOf() doesnt always work
          if (direction == RIGHT && candidate.isRightOf(stitch)) {
             candidate.removeSelf();
-            seenLines.add(candidate);
+            seenLines.add(candidate.getId());
          } else if (direction == LEFT && candidate.isLeftOf(stitch)) { // left
             candidate.removeSelf();
-            seenLines.add(candidate);
+            seenLines.add(candidate.getId());
          }
 
       }
@@ -495,9 +827,7 @@ public class VoronoiDiagram {
    }
 
    private void trim(Line l, Line bisector,
-         Coordinate endPoint, int direction, PriorityQueue<Line> removedLines) {
-
-      l.cutOffLines(direction, bisector, endPoint.getX(), removedLines);
+         Coordinate endPoint, int direction) {
 
       if (l.isHorizontal()) {
          // horizontal lines may not be oriented the correct way if they were just
@@ -1,40 +1,52 @@
 package com.dslab.voronoi;
 
 import java.awt.Color;
-import java.awt.Graphics;
-import java.awt.Insets;
-import javax.swing.JFrame;
-import javax.swing.JPanel;
-import javax.swing.event.MouseInputAdapter;
-
-import java.util.Scanner;
-import java.util.Vector;
-import java.io.*;
 import java.awt.Cursor;
 import java.awt.Dimension;
-import java.awt.EventQueue;
 import java.awt.Graphics;
-import java.awt.Point;
+import java.awt.event.ComponentAdapter;
+import java.awt.event.ComponentEvent;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
-import java.awt.event.MouseMotionAdapter;
-import javax.swing.JFrame;
-import javax.swing.JPanel;
-import java.awt.event.MouseWheelListener;
 import java.awt.event.MouseWheelEvent;
+import java.awt.image.BufferedImage;
+import java.util.Vector;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
 
-public class VoronoiGraphics implements Runnable {
+import javax.swing.JFrame;
+import javax.swing.JPanel;
+import javax.swing.SwingUtilities;
+
+/**
+ * Window that draws the diagram while it is built. Nothing here spins and
+ * nothing here locks the builder: the window only draws what the builder has
+ * published to its DiagramSnapshots, and a new frame is drawn when a snapshot
+ * is published, when the window is dragged, zoomed or resized, or when
+ * changed() is called. Everything touching AWT components runs on the event
+ * dispatch thread.
+ *
+ * Frames are drawn by a DiagramRenderer on a render thread of their own, into
+ * one of two back buffers, and the EDT only ever copies the last finished
+ * frame to the screen. While a new frame is on its way after a drag or zoom
+ * the last one is shown moved and scaled to the new view, so panning stays
+ * smooth however long a frame takes. Requests that come in while a frame is
+ * being drawn are merged into one.
+ *
+ * Every snapshot is an EdgeIndex, so a frame draws just the edges in view.
+ */
+public class VoronoiGraphics {
    static final int defaultX = 100; // the default system size
-   static final Color bgColor = new Color(0, 0, 0);
-   static final Color ptColor = new Color(255, 255, 255);
-   static final Color lnColor = new Color(190, 255, 128);
+   static final Color bgColor = DiagramRenderer.bgColor;
 
    private JFrame gWin; // a graphics window
+   // set on the EDT, repainted from the render thread
+   private volatile JPanel canvas;
 
-   private Insets theInsets; // the insets of the window
    private Vector<com.dslab.voronoi.Point> points;
+   private final DiagramSnapshots snapshots;
 
-   private int xShift = 500;
    private java.awt.Point mousePt;
    private final int W = 1500;
    private final int H = 1500;
@@ -43,67 +55,130 @@ public class VoronoiGraphics implements Runnable {
    private final int SCALE_DENOM = 100;
    private int scale = SCALE_DENOM;
 
+   // the view the next frame should show, replaced (never changed) on the EDT
+   private volatile View view;
+   // the last finished frame, what the EDT paints
+   private volatile Frame shown;
+   private final BufferedImage[] buffers = new BufferedImage[2];
+
+   private final ExecutorService renderThread = Executors.newSingleThreadExecutor(r -> {
+      Thread t = new Thread(r, "voronoi-render");
+      t.setDaemon(true);
+      return t;
+   });
+   private final AtomicBoolean renderQueued = new AtomicBoolean();
+   private final DiagramRenderer renderer = new DiagramRenderer();
+
+   private static class View {
+      final int originX, originY, width, height;
+      final double scale;
+
+      View(int originX, int originY, double scale, int width, int height) {
+         this.originX = originX;
+         this.originY = originY;
+         this.scale = scale;
+         this.width = width;
+         this.height = height;
+      }
+   }
+
+   private static class Frame {
+      final BufferedImage image;
+      final View view;
+
+      Frame(BufferedImage image, View view) {
+         this.image = image;
+         this.view = view;
+      }
+   }
+
+   // a window that shows the diagram once finished() is called
    public VoronoiGraphics(int x, int y, Vector<com.dslab.voronoi.Point> points) {
+      this(x, y, points, new DiagramSnapshots());
+   }
 
+   /**
+    * A window that shows the parts of the diagram the builder publishes to
+    * snapshots while it runs
+    */
+   public VoronoiGraphics(int x, int y, Vector<com.dslab.voronoi.Point> points, DiagramSnapshots snapshots) {
       this.points = points;
-      origin = new Point(0, 0);
-      startGraphics(x, y);
+      this.snapshots = snapshots;
+      origin = new java.awt.Point(0, 0);
+      view = new View(0, 0, 1, W, H);
+      snapshots.onPublish(this::requestFrame);
+   }
 
+   // open the window
+   public void start() {
+      SwingUtilities.invokeLater(() -> {
+         startGraphics();
+         viewChanged();
+      });
    }
 
-   public void run() {
-      while (true) {
+   // the diagram changed. Redraw it once (safe to call from any thread)
+   public void changed() {
+      requestFrame();
+   }
 
-         long resumeTime = System.currentTimeMillis() + 500;
-         do {
-         } while (System.currentTimeMillis() < resumeTime);
-         writeToGraphics(points);
+   // the build is done: draw the whole diagram, snapshotting it first if the
+   // builder didn't
+   public void finished() {
+      if (!snapshots.complete(points.size()) && !points.isEmpty()) {
+         renderThread.execute(() -> snapshots.publish(points, 0, points.size() - 1));
       }
+      requestFrame();
    }
 
-   private void startGraphics(int x, int y) {
+   private void startGraphics() {
 
       // initialize window and graphics:
       gWin = new JFrame("Voronoi Diagram");
       gWin.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
       gWin.setLocation(50, 50); // screen coordinates of top left corner
       gWin.setResizable(true);
-      gWin.setVisible(true); // show it!
+
+      canvas = new JPanel() {
+         @Override
+         protected void paintComponent(Graphics g) {
+            super.paintComponent(g);
+            paintFrame(g);
+         }
+      };
+      canvas.setBackground(bgColor);
+      canvas.setPreferredSize(new Dimension(W, H));
+      canvas.addComponentListener(new ComponentAdapter() {
+         @Override
+         public void componentResized(ComponentEvent e) {
+            viewChanged();
+         }
+      });
+      gWin.setContentPane(canvas);
       MouseDragTest();
       MouseScrollTest();
 
-      theInsets = gWin.getInsets();
-      gWin.setSize(W + theInsets.left + theInsets.right,
-            H + theInsets.top + theInsets.bottom);
-
-      // wait for frame to get initialized
-      long resumeTime = System.currentTimeMillis() + 100;
-      do {
-      } while (System.currentTimeMillis() < resumeTime);
-
+      gWin.pack();
+      gWin.setVisible(true); // show it!
    }
 
    public void MouseDragTest() {
-      gWin.setCursor(Cursor.getPredefinedCursor(Cursor.HAND_CURSOR));
-      gWin.addMouseListener(new MouseAdapter() {
+      canvas.setCursor(Cursor.getPredefinedCursor(Cursor.HAND_CURSOR));
+      MouseAdapter drag = new MouseAdapter() {
          @Override
          public void mousePressed(MouseEvent e) {
             mousePt = e.getPoint();
-
          }
-      });
-      gWin.addMouseMotionListener(new MouseMotionAdapter() {
+
          @Override
          public void mouseDragged(MouseEvent e) {
             int dx = e.getX() - mousePt.x;
             int dy = e.getY() - mousePt.y;
             origin.setLocation(origin.x + dx, origin.y + dy);
             mousePt = e.getPoint();
-
+            viewChanged();
          }
-      });
 
-      gWin.addMouseListener(new MouseAdapter() {
          @Override
          public void mouseClicked(MouseEvent e) {
             System.out.println("mouse location: " + e.getX() + " " + e.getY());
@@ -114,54 +189,78 @@ public class VoronoiGraphics implements Runnable {
                }
             }
          }
-      });
-
+      };
+      canvas.addMouseListener(drag);
+      canvas.addMouseMotionListener(drag);
    }
 
    public void MouseScrollTest() {
 
-      gWin.addMouseWheelListener(new MouseAdapter() {
+      canvas.addMouseWheelListener(new MouseAdapter() {
          @Override
          public void mouseWheelMoved(MouseWheelEvent e) {
-            scale -= (10 * e.getWheelRotation());
-
+            // never let the scale reach 0 or go negative
+            scale = Math.max(1, scale - 10 * e.getWheelRotation());
+            viewChanged();
          }
       });
 
    }
 
-   private void writeToGraphics(Vector<com.dslab.voronoi.Point> points) {
-
-      Graphics g = gWin.getGraphics();
-      // pop out the graphics
-
-      g.setColor(bgColor);
-      g.fillRect(theInsets.left,
-            theInsets.top,
-            W,
-            H);
-
-      for (com.dslab.voronoi.Point p : points) {
-
-         double newScale = (double) scale / SCALE_DENOM;
-         // draw this point
-         g.setColor(ptColor);
-         g.drawOval((int) (p.getX() * newScale) + origin.x, (int) (p.getY() * newScale) + origin.y,
-               1, 1);
+   // publish the view after a drag, zoom or resize (EDT only)
+   private void viewChanged() {
+      view = new View(origin.x, origin.y, (double) scale / SCALE_DENOM,
+            Math.max(canvas.getWidth(), 1), Math.max(canvas.getHeight(), 1));
+      canvas.repaint();
+      requestFrame();
+   }
 
-         // draw this point's lines
-         synchronized (p) {
+   // queue a frame unless one is queued already
+   private void requestFrame() {
+      if (renderQueued.compareAndSet(false, true)) {
+         renderThread.execute(this::renderFrame);
+      }
+   }
 
-            for (Line l : p.getLines()) {
-               g.setColor(lnColor);
-               g.drawLine((int) (l.getCoordinate(0).getX() * newScale) + origin.x,
-                     (int) (l.getCoordinate(0)
-                           .getY() * newScale) + origin.y,
-                     (int) (l.getCoordinate(1).getX() * newScale) + origin.x,
-                     (int) (l.getCoordinate(1).getY() * newScale) + origin.y);
-            }
-         }
+   // render thread: draw the current view into the buffer that is not being shown
+   private void renderFrame() {
+      renderQueued.set(false);
+      View v = view;
+      Frame last = shown;
+      int b = (last != null && last.image == buffers[0]) ? 1 : 0;
+      if (buffers[b] == null || buffers[b].getWidth() != v.width || buffers[b].getHeight() != v.height) {
+         buffers[b] = DiagramRenderer.newImage(v.width, v.height);
       }
+      BufferedImage img = buffers[b];
+      // the EDT may still be painting this buffer from the frame before last
+      DiagramSnapshots.Piece[] pieces = snapshots.current();
+      EdgeIndex[] edges = new EdgeIndex[pieces.length];
+      for (int i = 0; i < pieces.length; i++) {
+         edges[i] = pieces[i].getEdges();
+      }
+      synchronized (img) {
+         renderer.draw(edges, img, v.originX, v.originY, v.scale);
+      }
+      shown = new Frame(img, v);
+      JPanel c = canvas;
+      if (c != null) {
+         c.repaint();
+      }
+   }
 
+   // EDT: copy the last frame to the screen, moved and scaled to the current view
+   private void paintFrame(Graphics g) {
+      Frame f = shown;
+      if (f == null) {
+         return;
+      }
+      View v = view;
+      double k = v.scale / f.view.scale;
+      // the pixel the frame's (0, 0) lands on in the current view
+      int x = (int) Math.round(v.originX - f.view.originX * k);
+      int y = (int) Math.round(v.originY - f.view.originY * k);
+      synchronized (f.image) {
+         g.drawImage(f.image, x, y, (int) Math.round(f.view.width * k), (int) Math.round(f.view.height * k), null);
+      }
    }
 }
@@ -0,0 +1,135 @@
+package com.dslab.voronoi;
+
+import org.junit.jupiter.api.Test;
+import org.locationtech.jts.geom.Coordinate;
+
+import java.lang.management.ManagementFactory;
+import java.util.IdentityHashMap;
+import java.util.Vector;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.*;
+
+public class AllocationTest {
+
+  private static final com.sun.management.ThreadMXBean THREADS = (com.sun.management.ThreadMXBean) ManagementFactory
+      .getThreadMXBean();
+
+  static long allocatedBytes() {
+    return THREADS.getThreadAllocatedBytes(Thread.currentThread().getId());
+  }
+
+  // bytes allocated per step by the intersection and side tests the stitch runs
+  // on every step
+  @Test
+  public void stitchKernelsDoNotAllocate() {
+    assumeTrue(THREADS.isThreadAllocatedMemorySupported());
+    THREADS.setThreadAllocatedMemoryEnabled(true);
+
+    Point a = new Point(0, 0);
+    Point b = new Point(10, 0);
+    Point c = new Point(0, 10);
+    // bisector of a and b, bounded to y in [0, 2]
+    Line ab = new Line(5, -100, 5, 100, a, b);
+    ab.setSrc(new Coordinate(5, 0));
+    ab.setEnd(new Coordinate(5, 2));
+    // bisector of a and c, crosses ab's line at (5, 5) which is out of ab's bounds
+    Line ac = new Line(-100, 5, 100, 5, a, c);
+    // unbounded bisector of b and c, crosses ab at (5, 5)
+    Line bc = new Line(-100, -100, 100, 100, b, c);
+    Line unboundedAb = new Line(5, -100, 5, 100, a, b);
+    Coordinate probe = new Coordinate(7, 1);
+    IntersectionResult res = new IntersectionResult();
+    IntersectionHistory history = new IntersectionHistory();
+
+    int steps = 100000;
+    double sink = 0;
+    // warm up so class loading and the thread local scratch are not counted
+    for (int i = 0; i < 2 * steps; i++) {
+      sink += step(ab, ac, unboundedAb, bc, probe, res, history);
+    }
+
+    long before = allocatedBytes();
+    for (int i = 0; i < steps; i++) {
+      sink += step(ab, ac, unboundedAb, bc, probe, res, history);
+    }
+    long allocated = allocatedBytes() - before;
+
+    assertTrue(sink != 0);
+    assertTrue(allocated < steps / 10, "allocated " + allocated + " bytes over " + steps + " steps");
+  }
+
+  // one merge worth of tests: a miss, a hit that gets recorded, a repeat of the
+  // hit that the history rejects, and a side test
+  private static double step(Line ab, Line ac, Line unboundedAb, Line bc, Coordinate probe, IntersectionResult res,
+      IntersectionHistory history) {
+    history.begin();
+    double sink = 0;
+    sink += ab.intersects(ac, res, history) ? 1 : 0;
+    sink += unboundedAb.intersects(bc, res, history) ? res.getY() : 0;
+    sink += unboundedAb.intersects(bc, res, history) ? 1000 : 0;
+    sink += ab.getDirOfCoord(probe);
+    return sink;
+  }
+
+  // a whole merge allocates the edges and vertices it adds, one Line and one
+  // Coordinate a step, and a fixed amount for the hull and the bridges. None
+  // of the search, trim or removal work allocates
+  @Test
+  public void stitchAllocatesOnlyWhatItAdds() {
+    assumeTrue(THREADS.isThreadAllocatedMemorySupported());
+    THREADS.setThreadAllocatedMemoryEnabled(true);
+
+    // what an edge and a vertex cost on this JVM, once warmed up
+    Point a = new Point(0, 0);
+    Point b = new Point(10, 0);
+    Object[] keep = new Object[1000];
+    long perStep = 0;
+    for (int round = 0; round < 3; round++) {
+      long before = allocatedBytes();
+      for (int i = 0; i < keep.length; i++) {
+        Coordinate v = new Coordinate(i, i);
+        keep[i] = new Line(v, true, v, true, a, b);
+      }
+      perStep = (allocatedBytes() - before) / keep.length;
+    }
+
+    // the second merge is the same as the first, which warmed up the scratch
+    long allocated = 0;
+    int added = 0;
+    for (int round = 0; round < 2; round++) {
+      Vector<Point> points = VoronoiDiagramTest.randomPoints(4000, 10);
+      Point.number(points);
+      VoronoiDiagram diagram = new VoronoiDiagram(50000, 50000, VoronoiDiagramTest.randomPoints(1, 10));
+      int mid = points.size() / 2;
+      double reach = VoronoiDiagram.reach(50000);
+      ConvexHull left = diagram.divide(reach, reach, points, 0, mid - 1);
+      ConvexHull right = diagram.divide(reach, reach, points, mid, points.size() - 1);
+      IdentityHashMap<Line, Boolean> old = lines(points);
+
+      long before = allocatedBytes();
+      diagram.stitch(reach, reach, points, left, right);
+      allocated = allocatedBytes() - before;
+
+      added = 0;
+      for (Line l : lines(points).keySet()) {
+        if (!old.containsKey(l)) {
+          added++;
+        }
+      }
+    }
+    assertTrue(added > 10);
+    assertTrue(allocated <= added * perStep + 2048,
+        "allocated " + allocated + " bytes for " + added + " edges of " + perStep + " bytes");
+  }
+
+  private static IdentityHashMap<Line, Boolean> lines(Vector<Point> points) {
+    IdentityHashMap<Line, Boolean> res = new IdentityHashMap<>();
+    for (Point p : points) {
+      for (Line l : p.getLines()) {
+        res.put(l, true);
+      }
+    }
+    return res;
+  }
+}
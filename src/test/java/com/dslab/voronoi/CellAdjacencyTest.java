@@ -0,0 +1,45 @@
+package com.dslab.voronoi;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Vector;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static com.dslab.voronoi.VoronoiDiagramTest.randomPoints;
+
+public class CellAdjacencyTest {
+
+  @Test
+  public void adjacencyMatchesTheEdges() {
+    Vector<Point> points = randomPoints(2000, 10);
+    FortuneDiagram diagram = new FortuneDiagram(50000, 50000, points);
+    CellAdjacency serial = diagram.getAdjacency(true, 1);
+    CellAdjacency parallel = diagram.getAdjacency(true, 4);
+
+    assertEquals(points.size(), serial.siteCount());
+    assertEquals(2 * diagram.getDelaunay().edgeCount(), serial.entryCount());
+    for (int s = 0; s < points.size(); s++) {
+      Point p = points.get(s);
+      assertEquals(p.getLines().size(), serial.degree(s));
+      for (int j = 0; j < serial.degree(s); j++) {
+        int e = serial.first(s) + j;
+        int t = serial.neighbor(e);
+        assertTrue(p.hasBisectorWith(points.get(t)));
+        // the same edge from the other side
+        boolean back = false;
+        for (int k = serial.first(t); k < serial.first(t) + serial.degree(t); k++) {
+          if (serial.neighbor(k) == s) {
+            back = true;
+            assertEquals(serial.length(e), serial.length(k));
+          }
+        }
+        assertTrue(back);
+        assertTrue(serial.length(e) > 0);
+      }
+    }
+    assertArrayEquals(serial.getOffsets(), parallel.getOffsets());
+    assertArrayEquals(serial.getNeighbors(), parallel.getNeighbors());
+    assertArrayEquals(serial.getLengths(), parallel.getLengths());
+    assertNull(diagram.getAdjacency(false, 1).getLengths());
+  }
+}
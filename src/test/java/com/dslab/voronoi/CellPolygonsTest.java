@@ -0,0 +1,40 @@
+package com.dslab.voronoi;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Vector;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static com.dslab.voronoi.VoronoiDiagramTest.randomPoints;
+
+public class CellPolygonsTest {
+
+  @Test
+  public void cellPolygonsTileTheRectangle() {
+    Vector<Point> points = randomPoints(2000, 10);
+    FortuneDiagram diagram = new FortuneDiagram(50000, 50000, points);
+    CellPolygons serial = diagram.getCellPolygons(0, 0, 2000, 2000, 1);
+    CellPolygons parallel = diagram.getCellPolygons(0, 0, 2000, 2000, 4);
+
+    double total = 0;
+    for (int s = 0; s < serial.siteCount(); s++) {
+      assertTrue(serial.corners(s) >= 3);
+      total += serial.area(s);
+      // the site is on the inner side of every edge of its convex cell
+      Point p = points.get(s);
+      for (int j = 0; j < serial.corners(s); j++) {
+        int a = serial.first(s) + j;
+        int b = serial.first(s) + (j + 1) % serial.corners(s);
+        double cross = (serial.x(b) - serial.x(a)) * (p.getY() - serial.y(a))
+            - (serial.y(b) - serial.y(a)) * (p.getX() - serial.x(a));
+        assertTrue(cross >= -1e-6);
+      }
+    }
+    assertEquals(2000.0 * 2000.0, total, 1e-3);
+    assertEquals(serial.cornerCount(), parallel.cornerCount());
+    for (int c = 0; c < serial.cornerCount(); c++) {
+      assertEquals(serial.x(c), parallel.x(c));
+      assertEquals(serial.y(c), parallel.y(c));
+    }
+  }
+}
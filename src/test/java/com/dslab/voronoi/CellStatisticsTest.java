@@ -0,0 +1,57 @@
+package com.dslab.voronoi;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.Vector;
+
+import org.locationtech.jts.geom.Coordinate;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static com.dslab.voronoi.VoronoiDiagramTest.randomPoints;
+
+public class CellStatisticsTest {
+
+  @Test
+  public void cellStatisticsAddUp() {
+    Vector<Point> points = randomPoints(2000, 10);
+    FortuneDiagram diagram = new FortuneDiagram(50000, 50000, points);
+    CellStatistics serial = diagram.getCellStatistics(0, 0, 2000, 2000, 1);
+    CellStatistics parallel = diagram.getCellStatistics(0, 0, 2000, 2000, 4);
+
+    assertEquals(2000, serial.getCells());
+    assertEquals(2000.0 * 2000.0, serial.getAreaSum(), 1e-3);
+    assertEquals(2000, Arrays.stream(serial.getAreaHistogram()).sum());
+    assertTrue(serial.getAreaMin() > 0 && serial.getAreaMax() < 2000.0 * 2000.0);
+
+    // every edge has two sides, every bounded vertex is counted once
+    long sides = 0, sites = 0;
+    long[] neighbors = serial.getNeighborHistogram();
+    for (int d = 0; d < neighbors.length; d++) {
+      sides += d * neighbors[d];
+      sites += neighbors[d];
+    }
+    assertEquals(2000, sites);
+    IdentityHashMap<Line, Boolean> lines = new IdentityHashMap<>();
+    IdentityHashMap<Coordinate, Boolean> vertices = new IdentityHashMap<>();
+    for (Point p : points) {
+      for (Line l : p.getLines()) {
+        lines.put(l, true);
+        if (l.isSrcBound()) {
+          vertices.put(l.getSrc(), true);
+        }
+        if (l.isEndBound()) {
+          vertices.put(l.getEnd(), true);
+        }
+      }
+    }
+    assertEquals(2 * lines.size(), sides);
+    assertEquals(vertices.size(), Arrays.stream(serial.getVertexDegreeHistogram()).sum());
+
+    assertEquals(serial.getAreaSum(), parallel.getAreaSum());
+    assertEquals(serial.getPerimeterMean(), parallel.getPerimeterMean());
+    assertArrayEquals(serial.getPerimeterHistogram(), parallel.getPerimeterHistogram());
+    assertArrayEquals(serial.getVertexDegreeHistogram(), parallel.getVertexDegreeHistogram());
+  }
+}
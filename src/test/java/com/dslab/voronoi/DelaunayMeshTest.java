@@ -0,0 +1,54 @@
+package com.dslab.voronoi;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.IdentityHashMap;
+import java.util.Vector;
+
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.GeometryFactory;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static com.dslab.voronoi.VoronoiDiagramTest.randomPoints;
+
+public class DelaunayMeshTest {
+
+  @Test
+  public void delaunayMeshTilesTheHull() {
+    Vector<Point> points = randomPoints(2000, 10);
+    FortuneDiagram diagram = new FortuneDiagram(50000, 50000, points);
+    DelaunayMesh mesh = diagram.getDelaunay();
+
+    IdentityHashMap<Line, Boolean> lines = new IdentityHashMap<>();
+    for (Point p : points) {
+      for (Line l : p.getLines()) {
+        lines.put(l, true);
+      }
+    }
+    assertEquals(lines.size(), mesh.edgeCount());
+    for (int e = 0; e < mesh.edgeCount(); e++) {
+      assertTrue(mesh.edgeFrom(e) < mesh.edgeTo(e));
+      assertTrue(points.get(mesh.edgeFrom(e)).hasBisectorWith(points.get(mesh.edgeTo(e))));
+    }
+
+    // counter clockwise triangles with empty circumcircles that cover the hull
+    GeometryFactory factory = new GeometryFactory();
+    Coordinate[] sites = new Coordinate[points.size()];
+    for (int i = 0; i < sites.length; i++) {
+      sites[i] = points.get(i).getCoordinate();
+    }
+    double area = 0;
+    for (int t = 0; t < mesh.triangleCount(); t++) {
+      Point a = points.get(mesh.corner(t, 0));
+      Point b = points.get(mesh.corner(t, 1));
+      Point c = points.get(mesh.corner(t, 2));
+      assertTrue(Predicates.orient(a, b, c) > 0);
+      for (Line l : a.getLines()) {
+        assertTrue(Predicates.inCircle(a, b, c, (l.getP0() == a) ? l.getP1() : l.getP0()) <= 0);
+      }
+      area += ((b.getX() - a.getX()) * (c.getY() - a.getY()) - (c.getX() - a.getX()) * (b.getY() - a.getY())) / 2;
+    }
+    assertEquals(factory.createMultiPointFromCoords(sites).convexHull().getArea(), area, 1e-6);
+    assertEquals(3 * mesh.triangleCount(), mesh.getTriangles().length);
+  }
+}
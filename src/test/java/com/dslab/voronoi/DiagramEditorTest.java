@@ -0,0 +1,169 @@
+package com.dslab.voronoi;
+
+import org.junit.jupiter.api.Test;
+
+import java.awt.image.BufferedImage;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.Vector;
+
+import org.locationtech.jts.geom.Coordinate;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static com.dslab.voronoi.VoronoiDiagramTest.randomPoints;
+import static com.dslab.voronoi.VoronoiDiagramTest.assertRingsShareVertices;
+import static com.dslab.voronoi.VoronoiDiagramTest.neighbors;
+import static com.dslab.voronoi.VoronoiDiagramTest.copies;
+
+public class DiagramEditorTest {
+
+  @Test
+  public void insertedSitesMatchARebuild() {
+    // a small grid so there are cocircular sites, and some new sites land
+    // outside the hull or on an old one
+    Vector<Point> points = new ClusteredPointSource(300, 60, 60, 3, 8, 10).toVector();
+    FortuneDiagram diagram = new FortuneDiagram(50000, 50000, points);
+    Random rand = new Random(10);
+    int added = 0;
+    for (int i = 0; i < 200; i++) {
+      if (diagram.insert(new Point(rand.nextInt(90) - 15, rand.nextInt(90) - 15))) {
+        added++;
+      }
+    }
+    assertEquals(300 + added, points.size());
+    Vector<Point> fresh = copies(points);
+    new FortuneDiagram(50000, 50000, fresh);
+
+    assertEquals(neighbors(fresh), neighbors(points));
+  }
+
+  @Test
+  public void insertAllEditsADivideAndConquerDiagram() {
+    Vector<Point> points = randomPoints(1000, 10);
+    VoronoiDiagram diagram = new VoronoiDiagram(50000, 50000, points);
+    Random rand = new Random(10);
+    List<Point> batch = new ArrayList<>();
+    for (int i = 0; i < 100; i++) {
+      batch.add(new Point(rand.nextInt(1000), rand.nextInt(1000)));
+    }
+    diagram.insertAll(batch);
+    Vector<Point> fresh = copies(points);
+    new FortuneDiagram(50000, 50000, fresh);
+
+    assertEquals(neighbors(fresh), neighbors(points));
+    assertRingsShareVertices(points);
+  }
+
+  @Test
+  public void renderingAfterEditsDrawsEverySite() {
+    Vector<Point> points = new UniformPointSource(2000, 2000, 2000, 10).toVector();
+    FortuneDiagram diagram = new FortuneDiagram(50000, 50000, points);
+    Random rand = new Random(11);
+    for (int i = 0; i < 200; i++) {
+      diagram.insert(new Point(rand.nextInt(2000), rand.nextInt(2000)));
+    }
+    diagram.delete(points.get(0));
+    for (int i = 0; i < 20; i++) {
+      diagram.delete(points.get(rand.nextInt(points.size())));
+    }
+
+    // every site with 500 <= x <= 900 shows up as a white pixel
+    EdgeIndex index = EdgeIndex.build(points);
+    BufferedImage img = DiagramRenderer.newImage(402, 2001);
+    new DiagramRenderer().draw(index, img, -500, 0, 1);
+    int inView = 0;
+    for (Point p : points) {
+      if (p.getX() >= 500 && p.getX() <= 900) {
+        inView++;
+        // the dot's 1 x 1 oval lands one pixel down and right of the site
+        assertEquals(DiagramRenderer.ptColor.getRGB(), img.getRGB((int) p.getX() - 499, (int) p.getY() + 1), p.print());
+      }
+    }
+    int found = 0;
+    for (int s = index.firstSiteAtOrAfter(500); s < index.siteCount() && index.siteX(s) <= 900; s++) {
+      found++;
+    }
+    assertEquals(inView, found);
+  }
+
+  @Test
+  public void deletedSitesMatchARebuild() {
+    Vector<Point> points = randomPoints(400, 10);
+    VoronoiDiagram diagram = new VoronoiDiagram(50000, 50000, points);
+    Random rand = new Random(10);
+    for (int i = 0; i < 200; i++) {
+      assertTrue(diagram.delete(points.get(rand.nextInt(points.size()))));
+    }
+    assertFalse(diagram.delete(new Point(1, 1)));
+    assertEquals(200, points.size());
+    Vector<Point> fresh = copies(points);
+    new FortuneDiagram(50000, 50000, fresh);
+
+    assertEquals(neighbors(fresh), neighbors(points));
+  }
+
+  @Test
+  public void movedSitesMatchARebuild() {
+    // small steps, so most frames are repaired in place rather than swept
+    Vector<Point> points = new UniformPointSource(500, 1000, 1000, 10).toVector();
+    FortuneDiagram diagram = new FortuneDiagram(50000, 50000, points);
+    Random rand = new Random(10);
+    int local = 0;
+    for (int frame = 0; frame < 20; frame++) {
+      double[] x = new double[points.size()], y = new double[points.size()];
+      for (int i = 0; i < x.length; i++) {
+        x[i] = Math.max(0, points.get(i).getX() + rand.nextInt(3) - 1);
+        y[i] = Math.max(0, points.get(i).getY() + rand.nextInt(3) - 1);
+      }
+      if (diagram.moveSites(x, y)) {
+        local++;
+      }
+      for (int i = 0; i < x.length; i++) {
+        assertEquals(x[i], points.get(i).getX());
+        assertEquals(y[i], points.get(i).getY());
+      }
+      Vector<Point> fresh = copies(points);
+      new FortuneDiagram(50000, 50000, fresh);
+
+      assertEquals(neighbors(fresh), neighbors(points));
+    }
+    assertTrue(local > 10);
+  }
+
+  @Test
+  public void fewMovedSitesAreRepairedInPlace() {
+    // only the cells around the moved sites are placed again, every vertex
+    // still has to sit between its sites
+    Vector<Point> points = new UniformPointSource(2000, 2000, 2000, 10).toVector();
+    FortuneDiagram diagram = new FortuneDiagram(50000, 50000, points);
+    Random rand = new Random(10);
+    for (int frame = 0; frame < 20; frame++) {
+      double[] x = new double[points.size()], y = new double[points.size()];
+      for (int i = 0; i < x.length; i++) {
+        x[i] = points.get(i).getX();
+        y[i] = points.get(i).getY();
+        if (rand.nextInt(100) == 0) {
+          x[i] = Math.max(0, x[i] + rand.nextInt(5) - 2);
+          y[i] = Math.max(0, y[i] + rand.nextInt(5) - 2);
+        }
+      }
+      assertTrue(diagram.moveSites(x, y));
+      Vector<Point> fresh = copies(points);
+      new FortuneDiagram(50000, 50000, fresh);
+
+      assertEquals(neighbors(fresh), neighbors(points));
+      for (Point p : points) {
+        for (Line l : p.getLines()) {
+          for (Coordinate c : new Coordinate[] { l.getSrc(), l.getEnd() }) {
+            if (l.boundAt(c)) {
+              double r = c.distance(l.getP0().getCoordinate());
+              assertEquals(r, c.distance(l.getP1().getCoordinate()), 1e-6 * Math.max(1, r));
+            }
+          }
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,30 @@
+package com.dslab.voronoi;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Vector;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static com.dslab.voronoi.VoronoiDiagramTest.randomPoints;
+import static com.dslab.voronoi.VoronoiDiagramTest.edges;
+
+public class DiagramSnapshotsTest {
+
+  @Test
+  public void snapshotsEndWithTheWholeDiagram() {
+    Vector<Point> plain = randomPoints(3000, 10);
+    new VoronoiDiagram(50000, 50000, plain);
+
+    Vector<Point> watched = randomPoints(3000, 10);
+    DiagramSnapshots snapshots = new DiagramSnapshots(64, 0);
+    int[] published = { 0 };
+    snapshots.onPublish(() -> published[0]++);
+    new VoronoiDiagram(50000, 50000, watched, 4, 64, snapshots);
+
+    // publishing doesn't change what gets built
+    assertEquals(edges(plain), edges(watched));
+    assertTrue(published[0] > 1);
+    assertTrue(snapshots.complete(watched.size()));
+    assertEquals(edges(watched).size(), snapshots.current()[0].getEdges().edgeCount());
+  }
+}
@@ -0,0 +1,45 @@
+package com.dslab.voronoi;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Vector;
+
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.Envelope;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.GeometryFactory;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static com.dslab.voronoi.VoronoiDiagramTest.randomPoints;
+import static com.dslab.voronoi.VoronoiDiagramTest.edges;
+
+public class EdgeIndexTest {
+
+  @Test
+  public void edgeIndexReportsEachEdgeInViewOnce() {
+    Vector<Point> points = randomPoints(2000, 10);
+    new VoronoiDiagram(50000, 50000, points);
+    EdgeIndex index = EdgeIndex.build(points);
+    assertEquals(edges(points).size(), index.edgeCount());
+
+    double minX = 500, minY = 300, maxX = 900, maxY = 1200;
+    int[] hits = new int[index.edgeCount()];
+    index.query(minX, minY, maxX, maxY, e -> hits[e]++);
+    int inView = 0;
+    GeometryFactory gf = new GeometryFactory();
+    Geometry view = gf.toGeometry(new Envelope(minX, maxX, minY, maxY));
+    for (int e = 0; e < index.edgeCount(); e++) {
+      boolean meets = Math.max(index.x0(e), index.x1(e)) >= minX && Math.min(index.x0(e), index.x1(e)) <= maxX
+          && Math.max(index.y0(e), index.y1(e)) >= minY && Math.min(index.y0(e), index.y1(e)) <= maxY;
+      boolean crosses = view.intersects(gf.createLineString(new Coordinate[] {
+          new Coordinate(index.x0(e), index.y0(e)), new Coordinate(index.x1(e), index.y1(e)) }));
+      // every edge through the view exactly once, nothing whose box misses it
+      assertTrue(hits[e] <= 1);
+      assertEquals(crosses ? 1 : hits[e], hits[e]);
+      assertTrue(meets || hits[e] == 0);
+      inView += hits[e];
+    }
+    assertTrue(inView > 0);
+    assertTrue(index.estimate(minX, minY, maxX, maxY) >= inView);
+  }
+}
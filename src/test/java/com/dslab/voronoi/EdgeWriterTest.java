@@ -0,0 +1,55 @@
+package com.dslab.voronoi;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import java.util.Vector;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static com.dslab.voronoi.VoronoiDiagramTest.randomPoints;
+import static com.dslab.voronoi.VoronoiDiagramTest.edges;
+
+public class EdgeWriterTest {
+
+  @Test
+  public void edgeWriterWritesEachEdgeOnce(@TempDir Path dir) throws Exception {
+    Vector<Point> points = randomPoints(300, 10);
+    VoronoiDiagram diagram = new VoronoiDiagram(50000, 50000, points);
+    Path file = dir.resolve("edges.bin");
+
+    long written = EdgeWriter.write(diagram, file);
+    assertEquals(edges(points).size(), written);
+
+    ByteBuffer in = ByteBuffer.wrap(Files.readAllBytes(file)).order(ByteOrder.LITTLE_ENDIAN);
+    assertEquals(EdgeWriter.MAGIC, in.getInt());
+    assertEquals(EdgeWriter.VERSION, in.getInt());
+    int count = in.getInt();
+    assertEquals(written, count);
+    double x0 = in.getDouble();
+    in.position(in.position() + (count - 1) * 8 + count * 8 * 3);
+    int siteA = in.getInt();
+    in.position(in.position() + (count - 1) * 4);
+    int siteB = in.getInt();
+    in.position(in.position() + (count - 1) * 4 + count);
+    // the first edge belongs to the first site that has one
+    Line first = null;
+    for (Point p : points) {
+      for (Line l : p.getLines()) {
+        if (first == null && l.getP0() == p) {
+          first = l;
+        }
+      }
+    }
+    assertEquals(first.getX0(), x0);
+    assertSame(first.getP0(), points.get(siteA));
+    assertSame(first.getP1(), points.get(siteB));
+    assertEquals(0, in.getInt());
+    assertEquals(written, in.getLong());
+    assertFalse(in.hasRemaining());
+  }
+}
@@ -0,0 +1,49 @@
+package com.dslab.voronoi;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Vector;
+
+import org.locationtech.jts.geom.Coordinate;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static com.dslab.voronoi.VoronoiDiagramTest.randomPoints;
+import static com.dslab.voronoi.VoronoiDiagramTest.assertRingsShareVertices;
+import static com.dslab.voronoi.VoronoiDiagramTest.neighbors;
+
+public class FortuneDiagramTest {
+
+  @Test
+  public void fortuneFindsTheSameNeighbors() {
+    Vector<Point> dc = randomPoints(1000, 10);
+    new VoronoiDiagram(50000, 50000, dc);
+    Vector<Point> sweep = randomPoints(1000, 10);
+    new FortuneDiagram(50000, 50000, sweep);
+
+    assertEquals(neighbors(dc), neighbors(sweep));
+  }
+
+  @Test
+  public void fortuneBuildsAValidDiagram() {
+    Vector<Point> points = new ClusteredPointSource(600, 400, 400, 4, 10, 10).toVector();
+    new FortuneDiagram(50000, 50000, points);
+
+    assertRingsShareVertices(points);
+    for (Point site : points) {
+      for (Line l : site.getLines()) {
+        for (Coordinate c : new Coordinate[] { l.getSrc(), l.getEnd() }) {
+          if (!l.boundAt(c)) {
+            continue;
+          }
+          // a vertex is as far from one site of its edge as from the other,
+          // and no site is nearer
+          double r = c.distance(l.getP0().getCoordinate());
+          assertEquals(r, c.distance(l.getP1().getCoordinate()), 1e-6 * r);
+          for (Point p : points) {
+            assertTrue(c.distance(p.getCoordinate()) > r - 1e-6 * r);
+          }
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,31 @@
+package com.dslab.voronoi;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class IdSetTest {
+
+  @Test
+  public void idSetClearsOnlyWhatWasAdded() {
+    IdSet set = new IdSet();
+    assertTrue(set.add(3));
+    assertTrue(set.add(100000));
+    assertFalse(set.add(3));
+    assertTrue(set.contains(100000));
+    assertFalse(set.contains(4));
+    set.clear();
+    assertFalse(set.contains(3));
+    assertFalse(set.contains(100000));
+    assertEquals(0, set.size());
+  }
+
+  @Test
+  public void idSetTakesNoNegativeIds() {
+    // lines made outside a build have id -1
+    IdSet set = new IdSet();
+    assertFalse(set.contains(-1));
+    assertThrows(IllegalArgumentException.class, () -> set.add(-1));
+    assertEquals(0, set.size());
+  }
+}
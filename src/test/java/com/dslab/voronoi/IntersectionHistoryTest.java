@@ -0,0 +1,24 @@
+package com.dslab.voronoi;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class IntersectionHistoryTest {
+
+  @Test
+  public void sameBisectorCrossesOncePerMerge() {
+    Point a = new Point(0, 0);
+    Point b = new Point(10, 0);
+    Point c = new Point(0, 10);
+    Line ab = new Line(5, -100, 5, 100, a, b);
+    IntersectionHistory history = new IntersectionHistory();
+    IntersectionResult res = new IntersectionResult();
+
+    history.begin();
+    assertTrue(ab.intersects(new Line(-100, -100, 100, 100, b, c), res, history));
+    assertFalse(ab.intersects(new Line(-100, -100, 100, 100, b, c), res, history));
+    history.begin();
+    assertTrue(ab.intersects(new Line(-100, -100, 100, 100, b, c), res, history));
+  }
+}
@@ -0,0 +1,54 @@
+package com.dslab.voronoi;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Vector;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static com.dslab.voronoi.VoronoiDiagramTest.neighbors;
+import static com.dslab.voronoi.VoronoiDiagramTest.copies;
+
+public class LloydRelaxationTest {
+
+  @Test
+  public void lloydRelaxationSpreadsClusteredSites() {
+    Vector<Point> one = new ClusteredPointSource(300, 400, 400, 3, 20, 10).toVector();
+    Vector<Point> four = new ClusteredPointSource(300, 400, 400, 3, 20, 10).toVector();
+    LloydRelaxation serial = new LloydRelaxation(400, 400, one);
+    LloydRelaxation parallel = new LloydRelaxation(400, 400, four);
+    double closest = closestNeighbors(one);
+    assertEquals(30, serial.run(30, 0, 1));
+    parallel.run(30, 0, 4);
+
+    assertEquals(30, serial.getIterations());
+    assertTrue(serial.getTimer().millis("iter 30") >= 0);
+    // sites on top of each other may trade places, so compare where they are
+    List<String> serialSites = new ArrayList<>(), parallelSites = new ArrayList<>();
+    for (int i = 0; i < one.size(); i++) {
+      Point p = one.get(i);
+      assertTrue(p.getX() >= 0 && p.getX() <= 400 && p.getY() >= 0 && p.getY() <= 400);
+      serialSites.add(p.print());
+      parallelSites.add(four.get(i).print());
+    }
+    Collections.sort(serialSites);
+    Collections.sort(parallelSites);
+    assertEquals(serialSites, parallelSites);
+    Vector<Point> fresh = copies(one);
+    new FortuneDiagram(400, 400, fresh);
+    assertEquals(neighbors(fresh), neighbors(one));
+    assertTrue(closestNeighbors(one) > closest);
+  }
+
+  static double closestNeighbors(Vector<Point> points) {
+    double res = Double.POSITIVE_INFINITY;
+    for (Point p : points) {
+      for (Line l : p.getLines()) {
+        res = Math.min(res, l.getP0().distance(l.getP1()));
+      }
+    }
+    return res;
+  }
+}
@@ -0,0 +1,19 @@
+package com.dslab.voronoi;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PhaseTimerTest {
+
+  @Test
+  public void phaseTimerRecordsPhasesInOrder() {
+    PhaseTimer timer = new PhaseTimer();
+    timer.start("points");
+    timer.start("build");
+    timer.stop();
+    assertTrue(timer.millis("points") >= 0);
+    assertTrue(timer.millis("build") >= 0);
+    assertEquals(-1, timer.millis("render"));
+  }
+}
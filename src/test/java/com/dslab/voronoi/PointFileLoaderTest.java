@@ -0,0 +1,36 @@
+package com.dslab.voronoi;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PointFileLoaderTest {
+
+  @Test
+  public void loaderSortsAndDedupesFile(@TempDir Path dir) throws Exception {
+    StringBuilder text = new StringBuilder("x,y\n");
+    for (int i = 2000; i > 0; i--) {
+      text.append(i % 50).append(',').append(i).append(".75\r\n");
+    }
+    text.append("-3.5\t-7e1\n\n7 , 8\n7,8\n");
+    Path file = dir.resolve("points.csv");
+    Files.write(file, text.toString().getBytes(StandardCharsets.US_ASCII));
+
+    PointSource source = PointFileLoader.load(file, 3);
+    assertEquals(2002, source.size());
+    Point first = source.next();
+    assertEquals(-3.0, first.getX());
+    assertEquals(-70.0, first.getY());
+    Point last = first;
+    while (source.hasNext()) {
+      Point p = source.next();
+      assertTrue(p.getX() > last.getX() || p.getX() == last.getX() && p.getY() > last.getY());
+      last = p;
+    }
+  }
+}
@@ -0,0 +1,24 @@
+package com.dslab.voronoi;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PointSourceTest {
+
+  @Test
+  public void uniformSourceIsSortedAndDistinct() {
+    // 5000 points in a 100 x 100 grid forces plenty of duplicates to be redrawn
+    PointSource source = new UniformPointSource(5000, 100, 100, 7);
+    assertEquals(5000, source.size());
+    Point last = source.next();
+    int count = 1;
+    while (source.hasNext()) {
+      Point p = source.next();
+      assertTrue(p.getX() > last.getX() || p.getX() == last.getX() && p.getY() > last.getY());
+      last = p;
+      count++;
+    }
+    assertEquals(5000, count);
+  }
+}
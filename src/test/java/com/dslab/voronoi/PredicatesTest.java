@@ -0,0 +1,27 @@
+package com.dslab.voronoi;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PredicatesTest {
+
+  @Test
+  public void predicatesAreExactOnNearlyDegenerateSites() {
+    // far from the origin, where the double determinant rounds
+    Point a = new Point(100000001, 100000000);
+    Point b = new Point(300000003, 300000000);
+    Point on = new Point(200000002, 200000000);
+    Point off = new Point(200000002, 200000001);
+    assertEquals(0, Predicates.orient(a, b, on));
+    assertEquals(1, Predicates.orient(a, b, off));
+    assertEquals(-1, Predicates.orient(b, a, off));
+
+    // the corners of a square are on one circle, whatever the order
+    Point p = new Point(0, 0), q = new Point(10, 0), r = new Point(10, 10), s = new Point(0, 10);
+    assertEquals(0, Predicates.inCircle(p, q, r, s));
+    assertEquals(1, Predicates.inCircle(p, q, r, new Point(5, 9)));
+    assertEquals(1, Predicates.inCircle(r, q, p, new Point(5, 9)));
+    assertEquals(-1, Predicates.inCircle(p, q, r, new Point(11, 11)));
+  }
+}
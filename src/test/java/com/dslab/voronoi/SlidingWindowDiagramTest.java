@@ -0,0 +1,30 @@
+package com.dslab.voronoi;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+import java.util.Vector;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static com.dslab.voronoi.VoronoiDiagramTest.assertRingsShareVertices;
+import static com.dslab.voronoi.VoronoiDiagramTest.neighbors;
+import static com.dslab.voronoi.VoronoiDiagramTest.copies;
+
+public class SlidingWindowDiagramTest {
+
+  @Test
+  public void slidingWindowKeepsTheLastSites() {
+    // a small grid so sites repeat and sit on common circles
+    SlidingWindowDiagram window = new SlidingWindowDiagram(50000, 50000, 150);
+    Random rand = new Random(10);
+    for (int time = 0; time < 1000; time++) {
+      window.add(new Point(rand.nextInt(40), rand.nextInt(40)), time);
+      assertTrue(window.size() <= 150);
+    }
+    Vector<Point> fresh = copies(window.getPoints());
+    new FortuneDiagram(50000, 50000, fresh);
+
+    assertEquals(neighbors(fresh), neighbors(window.getPoints()));
+    assertRingsShareVertices(window.getPoints());
+  }
+}
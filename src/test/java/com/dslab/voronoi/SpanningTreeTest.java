@@ -0,0 +1,50 @@
+package com.dslab.voronoi;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Vector;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static com.dslab.voronoi.VoronoiDiagramTest.randomPoints;
+
+public class SpanningTreeTest {
+
+  @Test
+  public void spanningTreeMatchesPrim() {
+    Vector<Point> points = randomPoints(1000, 10);
+    FortuneDiagram diagram = new FortuneDiagram(50000, 50000, points);
+    SpanningTree tree = diagram.getSpanningTree(4);
+
+    assertEquals(1, tree.componentCount());
+    assertEquals(points.size() - 1, tree.edgeCount());
+    double sum = 0;
+    for (int e = 0; e < tree.edgeCount(); e++) {
+      assertEquals(points.get(tree.from(e)).distance(points.get(tree.to(e))), tree.length(e), 1e-9);
+      sum += tree.length(e);
+    }
+    assertEquals(tree.getTotalLength(), sum, 1e-6);
+
+    // quadratic Prim over every pair
+    int n = points.size();
+    double[] best = new double[n];
+    boolean[] in = new boolean[n];
+    Arrays.fill(best, Double.POSITIVE_INFINITY);
+    best[0] = 0;
+    double prim = 0;
+    for (int round = 0; round < n; round++) {
+      int next = -1;
+      for (int s = 0; s < n; s++) {
+        if (!in[s] && (next < 0 || best[s] < best[next])) {
+          next = s;
+        }
+      }
+      in[next] = true;
+      prim += best[next];
+      for (int s = 0; s < n; s++) {
+        best[s] = Math.min(best[s], points.get(next).distance(points.get(s)));
+      }
+    }
+    assertEquals(prim, tree.getTotalLength(), 1e-6);
+  }
+}
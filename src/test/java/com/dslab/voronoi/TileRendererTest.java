@@ -0,0 +1,61 @@
+package com.dslab.voronoi;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.awt.image.BufferedImage;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Vector;
+import java.util.stream.Stream;
+
+import javax.imageio.ImageIO;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static com.dslab.voronoi.VoronoiDiagramTest.randomPoints;
+
+public class TileRendererTest {
+
+  @Test
+  public void tileRendererWritesPyramid(@TempDir Path dir) throws Exception {
+    Vector<Point> points = randomPoints(500, 10);
+    TileRenderer.Result res = new TileRenderer(new VoronoiDiagram(50000, 50000, points)).render(dir, 2, 2);
+
+    // edges run all over the sites' square, so no tile is empty
+    List<String> tiles = new ArrayList<>();
+    try (Stream<Path> files = Files.walk(dir)) {
+      files.filter(Files::isRegularFile).forEach(f -> tiles.add(dir.relativize(f).toString().replace('\\', '/')));
+    }
+    Collections.sort(tiles);
+    List<String> expected = new ArrayList<>();
+    for (int z = 0; z <= 2; z++) {
+      for (int x = 0; x < 1 << z; x++) {
+        for (int y = 0; y < 1 << z; y++) {
+          expected.add(z + "/" + x + "/" + y + ".png");
+        }
+      }
+    }
+    Collections.sort(expected);
+    assertEquals(expected, tiles);
+    assertEquals(21, res.getWritten());
+    assertEquals(0, res.getEmpty());
+
+    BufferedImage tile = ImageIO.read(dir.resolve("2/1/2.png").toFile());
+    assertEquals(TileRenderer.TILE, tile.getWidth());
+    assertEquals(TileRenderer.TILE, tile.getHeight());
+    int drawn = 0;
+    int background = DiagramRenderer.bgColor.getRGB() & 0xffffff;
+    for (int y = 0; y < tile.getHeight(); y++) {
+      for (int x = 0; x < tile.getWidth(); x++) {
+        if ((tile.getRGB(x, y) & 0xffffff) != background) {
+          drawn++;
+        }
+      }
+    }
+    assertTrue(drawn > 100);
+  }
+}
@@ -0,0 +1,245 @@
+package com.dslab.voronoi;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Random;
+import java.util.Vector;
+
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.GeometryFactory;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class VoronoiDiagramTest {
+
+  // one site per column like Driver, sorted in x and then in y
+  static Vector<Point> randomPoints(int n, long seed) {
+    return new ColumnPointSource(n, n, seed).toVector();
+  }
+
+  static List<String> edges(Vector<Point> points) {
+    IdentityHashMap<Line, Boolean> seen = new IdentityHashMap<>();
+    List<String> res = new ArrayList<>();
+    for (Point p : points) {
+      for (Line l : p.getLines()) {
+        if (seen.put(l, true) == null) {
+          res.add(l.getX0() + "," + l.getY0() + "," + l.getX1() + "," + l.getY1() + "|" + l.getP0().print() + "|"
+              + l.getP1().print());
+        }
+      }
+    }
+    Collections.sort(res);
+    return res;
+  }
+
+  @Test
+  public void parallelBuildMatchesSequential() {
+    Vector<Point> sequential = randomPoints(3000, 10);
+    new VoronoiDiagram(50000, 50000, sequential);
+
+    Vector<Point> parallel = randomPoints(3000, 10);
+    new VoronoiDiagram(50000, 50000, parallel, 4, 64);
+
+    assertEquals(edges(sequential), edges(parallel));
+  }
+
+  @Test
+  public void edgesShareVertices() {
+    Vector<Point> points = randomPoints(300, 10);
+    new VoronoiDiagram(50000, 50000, points);
+
+    assertRingsShareVertices(points);
+  }
+
+  // going counter clockwise round a site, a bounded vertex is one record
+  // shared by the edge coming in and the next edge going out
+  static void assertRingsShareVertices(Vector<Point> points) {
+    for (Point p : points) {
+      List<Line> ring = p.getLines();
+      for (int i = 0; i < ring.size(); i++) {
+        Line in = ring.get(i);
+        Line out = ring.get((i + 1) % ring.size());
+        Coordinate end = leftStart(in, p) == in.getSrc() ? in.getEnd() : in.getSrc();
+        if (ring.size() > 1 && in.boundAt(end)) {
+          assertSame(end, leftStart(out, p));
+        }
+      }
+    }
+  }
+
+  // the end an edge of site p starts from with p on its left
+  static Coordinate leftStart(Line l, Point p) {
+    Coordinate a = l.getSrc();
+    Coordinate b = l.getEnd();
+    double cross = (b.x - a.x) * (p.getY() - a.y) - (b.y - a.y) * (p.getX() - a.x);
+    return (cross > 0) ? a : b;
+  }
+
+  @Test
+  public void linesAreKeptCounterClockwise() {
+    Vector<Point> points = randomPoints(1000, 10);
+    new VoronoiDiagram(50000, 50000, points);
+
+    for (Point p : points) {
+      double last = Double.NEGATIVE_INFINITY;
+      for (Line l : p.getLines()) {
+        Point other = (l.getP0() == p) ? l.getP1() : l.getP0();
+        double angle = Point.pseudoAngle(other.getX() - p.getX(), other.getY() - p.getY());
+        assertTrue(angle >= last);
+        last = angle;
+        assertSame(l, p.getLines().get(p.indexOf(l)));
+      }
+    }
+  }
+
+  static List<String> neighbors(Vector<Point> points) {
+    List<String> res = new ArrayList<>();
+    for (Point p : points) {
+      for (Line l : p.getLines()) {
+        if (l.getP0() == p) {
+          res.add(l.getP0().print() + "|" + l.getP1().print());
+        }
+      }
+    }
+    Collections.sort(res);
+    return res;
+  }
+
+  static Vector<Point> copies(Vector<Point> points) {
+    Vector<Point> res = new Vector<>();
+    for (Point p : points) {
+      res.add(new Point(p.getX(), p.getY()));
+    }
+    return res;
+  }
+
+  @Test
+  public void farVerticesKeepTheEdgeRingsInOrder() {
+    // columns of nearly collinear sites put vertices far outside the size, and
+    // the merge walks round the edge rings from there
+    Vector<Point> dc = randomPoints(2000, 3);
+    new VoronoiDiagram(50000, 50000, dc);
+    Vector<Point> sweep = randomPoints(2000, 3);
+    new FortuneDiagram(50000, 50000, sweep);
+
+    assertEquals(neighbors(dc), neighbors(sweep));
+    // unbounded ends are back at the size when the edge starts inside it
+    for (Point p : dc) {
+      for (Line l : p.getLines()) {
+        if (!l.fullyBounded()) {
+          Coordinate bound = l.isSrcBound() ? l.getSrc() : l.getEnd();
+          Coordinate open = l.isSrcBound() ? l.getEnd() : l.getSrc();
+          if (l.unbounded() || Math.abs(bound.x) <= 50000) {
+            assertTrue(Math.abs(open.x) <= 50000 + 1e-6);
+          }
+        }
+      }
+    }
+  }
+
+  @Test
+  public void nearlyCocircularSitesStitch() {
+    // the crossing these sites' merge looks for sits just short of a vertex,
+    // and one a hair past the end of an edge mustn't be taken for it
+    double[][] xy = { { 251, 777 }, { 261, 704 }, { 264, 779 }, { 272, 996 }, { 280, 775 } };
+    for (int size : new int[] { 1000, 50000 }) {
+      Vector<Point> dc = new Vector<>();
+      Vector<Point> sweep = new Vector<>();
+      for (double[] c : xy) {
+        dc.add(new Point(c[0], c[1]));
+        sweep.add(new Point(c[0], c[1]));
+      }
+      new VoronoiDiagram(size, size, dc);
+      new FortuneDiagram(size, size, sweep);
+
+      assertEquals(neighbors(sweep), neighbors(dc));
+    }
+    // and on a whole diagram that used to come out with cells missing
+    Vector<Point> dc = new ColumnPointSource(3000, 3000, 4).toVector();
+    new VoronoiDiagram(3000, 3000, dc);
+    Vector<Point> sweep = new ColumnPointSource(3000, 3000, 4).toVector();
+    new FortuneDiagram(3000, 3000, sweep);
+
+    assertEquals(neighbors(sweep), neighbors(dc));
+  }
+
+  @Test
+  public void idsAreNumberedPerDiagram() {
+    // a second build of the same sites hands out the same line ids
+    int[] maxId = new int[2];
+    for (int k = 0; k < 2; k++) {
+      Vector<Point> points = randomPoints(1000, 10);
+      new VoronoiDiagram(50000, 50000, points);
+      maxId[k] = -1;
+      for (Point p : points) {
+        for (Line l : p.getLines()) {
+          maxId[k] = Math.max(maxId[k], l.getId());
+        }
+      }
+    }
+    assertEquals(maxId[0], maxId[1]);
+
+    // site ids stay the index in points through edits
+    Vector<Point> points = randomPoints(300, 10);
+    VoronoiDiagram diagram = new VoronoiDiagram(50000, 50000, points);
+    Random rand = new Random(10);
+    for (int i = 0; i < 200; i++) {
+      if (rand.nextBoolean()) {
+        diagram.delete(points.get(rand.nextInt(points.size())));
+      } else {
+        diagram.insert(new Point(rand.nextInt(1000), rand.nextInt(1000)));
+      }
+    }
+    for (int i = 0; i < points.size(); i++) {
+      assertEquals(i, points.get(i).getId());
+    }
+  }
+
+  // the divide and conquer build at a size it stitches right, see VoronoiDiagram
+  @Test
+  public void divideAndConquerFeedsEveryPass() {
+    Vector<Point> points = randomPoints(1000, 10);
+    VoronoiDiagram diagram = new VoronoiDiagram(50000, 50000, points);
+
+    CellPolygons cells = diagram.getCellPolygons(0, 0, 1000, 1000, 2);
+    double total = 0;
+    for (int s = 0; s < cells.siteCount(); s++) {
+      assertTrue(cells.corners(s) >= 3);
+      total += cells.area(s);
+    }
+    assertEquals(1000.0 * 1000.0, total, 1e-3);
+
+    CellStatistics stats = diagram.getCellStatistics(0, 0, 1000, 1000, 2);
+    assertEquals(1000, stats.getCells());
+    assertEquals(1000.0 * 1000.0, stats.getAreaSum(), 1e-3);
+
+    DelaunayMesh mesh = diagram.getDelaunay();
+    double area = 0;
+    for (int t = 0; t < mesh.triangleCount(); t++) {
+      Point a = points.get(mesh.corner(t, 0));
+      Point b = points.get(mesh.corner(t, 1));
+      Point c = points.get(mesh.corner(t, 2));
+      assertTrue(Predicates.orient(a, b, c) > 0);
+      area += ((b.getX() - a.getX()) * (c.getY() - a.getY()) - (c.getX() - a.getX()) * (b.getY() - a.getY())) / 2;
+    }
+    Coordinate[] sites = new Coordinate[points.size()];
+    for (int i = 0; i < sites.length; i++) {
+      sites[i] = points.get(i).getCoordinate();
+    }
+    assertEquals(new GeometryFactory().createMultiPointFromCoords(sites).convexHull().getArea(), area, 1e-6);
+
+    CellAdjacency graph = diagram.getAdjacency(false, 2);
+    assertEquals(2 * mesh.edgeCount(), graph.entryCount());
+
+    SpanningTree tree = diagram.getSpanningTree(2);
+    assertEquals(1, tree.componentCount());
+    assertEquals(points.size() - 1, tree.edgeCount());
+    SpanningTree fortune = new FortuneDiagram(50000, 50000, randomPoints(1000, 10)).getSpanningTree(1);
+    assertEquals(fortune.getTotalLength(), tree.getTotalLength(), 1e-6);
+  }
+
+}